@@ -2,46 +2,185 @@ package com.localmediametadata;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
 import android.util.Log;
 
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AsyncTask {
-  // https://stackoverflow.com/a/58767934
+  private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+  private static final long KEEP_ALIVE_SECONDS = 30;
+  private static final Handler handler = new Handler(Looper.getMainLooper());
+  private static final ConcurrentHashMap<String, ReadTask> requests = new ConcurrentHashMap<>();
+  // key of a queued or running read -> the promises waiting for it
+  private static final HashMap<String, ArrayList<Promise>> sharedReads = new HashMap<>();
+
+  /**
+   * Worker lanes shared by every bridge call.
+   * Reads from internal flash scale with the cores, removable storage (SD card) degrades
+   * quickly with parallel random reads so it gets a narrow lane, writes are kept apart
+   * so a long rewrite never blocks the reads of the visible list.
+   */
+  public enum Lane {
+    READ("read", Math.max(2, Math.min(CPU_COUNT, 4))),
+    READ_REMOVABLE("read-removable", 2),
+    WRITE("write", 2);
+
+    private final String name;
+    private final int size;
+    Lane(String name, int size) {
+      this.name = name;
+      this.size = size;
+    }
+
+    public int getSize() {
+      return size;
+    }
+  }
+
+  /**
+   * The queued tasks of a lane run by priority, then in the order they were queued.
+   * A running task is never preempted, the long jobs (scan, batch) yield between their files instead.
+   */
+  public enum Priority {
+    // the rows on screen
+    INTERACTIVE,
+    // the rows about to be shown
+    PREFETCH,
+    // scans and bulk reads
+    BACKGROUND;
+
+    public static Priority parse(String name) {
+      if ("prefetch".equals(name)) return PREFETCH;
+      if ("background".equals(name)) return BACKGROUND;
+      return INTERACTIVE;
+    }
+  }
+
+  private static final AtomicLong taskSequence = new AtomicLong(0);
+
+  private interface PrioritizedTask extends Runnable {
+    Priority getPriority();
+    long getSequence();
+  }
+
+  private static class PrioritizedRunnable implements PrioritizedTask {
+    private final Runnable runnable;
+    private final Priority priority;
+    private final long sequence = taskSequence.getAndIncrement();
+    PrioritizedRunnable(Runnable runnable, Priority priority) {
+      this.runnable = runnable;
+      this.priority = priority;
+    }
+
+    @Override public Priority getPriority() { return priority; }
+    @Override public long getSequence() { return sequence; }
+    @Override public void run() { runnable.run(); }
+  }
+
+  private static final Comparator<Runnable> PRIORITY_ORDER = (a, b) -> {
+    PrioritizedTask taskA = (PrioritizedTask) a;
+    PrioritizedTask taskB = (PrioritizedTask) b;
+    int result = taskA.getPriority().compareTo(taskB.getPriority());
+    return result != 0 ? result : Long.compare(taskA.getSequence(), taskB.getSequence());
+  };
+
+  /**
+   * Queue the runnable of a lane with a priority, the plain runnables run as {@link Priority#INTERACTIVE}
+   */
+  public static Runnable withPriority(Priority priority, Runnable runnable) {
+    return new PrioritizedRunnable(runnable, priority);
+  }
+
+  private static class PriorityExecutor extends ThreadPoolExecutor {
+    PriorityExecutor(int size, ThreadFactory threadFactory) {
+      super(size, size, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new PriorityBlockingQueue<>(64, PRIORITY_ORDER),
+        threadFactory);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      super.execute(command instanceof PrioritizedTask ? command : new PrioritizedRunnable(command, Priority.INTERACTIVE));
+    }
+  }
+
+  private static class TaskThreadFactory implements ThreadFactory {
+    private final String name;
+    private final AtomicInteger count = new AtomicInteger(1);
+    TaskThreadFactory(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+      return new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        r.run();
+      }, "LocalMediaMetadata-" + name + "-" + count.getAndIncrement());
+    }
+  }
+
   private static class TaskRunner {
-    private final ExecutorService executor = Executors.newSingleThreadExecutor(); // change according to your requirements
-    private final Handler handler = new Handler(Looper.getMainLooper());
+    private static final ThreadPoolExecutor[] executors = new ThreadPoolExecutor[Lane.values().length];
+    static {
+      for (Lane lane : Lane.values()) {
+        ThreadPoolExecutor executor = new PriorityExecutor(lane.size, new TaskThreadFactory(lane.name));
+        executor.allowCoreThreadTimeOut(true);
+        executors[lane.ordinal()] = executor;
+      }
+    }
 
     public interface Callback<Object> {
       void onComplete(Object result);
     }
 
-    public <Object> void executeAsync(Callable<Object> callable, Callback<Object> callback) {
-      executor.execute(() -> {
+    static ThreadPoolExecutor getExecutor(Lane lane) {
+      return executors[lane.ordinal()];
+    }
+
+    public static <Object> void executeAsync(Lane lane, Callable<Object> callable, Callback<Object> callback) {
+      getExecutor(lane).execute(() -> {
         try {
           Object result = callable.call();
-          handler.post(() -> callback.onComplete(result));
+          callback.onComplete(result);
         } catch (Exception e) {
-          handler.post(() -> callback.onComplete((Object) e));
+          callback.onComplete((Object) e);
           Log.e("TaskRunner", "execute error:");
           e.printStackTrace();
         }
       });
     }
-    public void shutdown() {
-      executor.shutdown();
-    }
   }
 
-  public static void runTask(Callable<Object> callable, Promise promise) {
-    TaskRunner taskRunner = new TaskRunner();
+  public static Lane getReadLane(String filePath) {
+    return Utils.isRemovableStorage(filePath) ? Lane.READ_REMOVABLE : Lane.READ;
+  }
+
+  public static Executor getExecutor(Lane lane) {
+    return TaskRunner.getExecutor(lane);
+  }
+
+  public static void runTask(Lane lane, Callable<Object> callable, Promise promise) {
     try {
-      taskRunner.executeAsync(callable, (Object result) -> {
-        taskRunner.shutdown();
+      TaskRunner.executeAsync(lane, callable, (Object result) -> {
         if (result instanceof Exception) {
           promise.reject("-1", ((Exception) result).getMessage());
         } else promise.resolve(result);
@@ -50,4 +189,186 @@ public class AsyncTask {
       promise.reject("-1", err.getMessage());
     }
   }
+  public static void runTask(Callable<Object> callable, Promise promise) {
+    runTask(Lane.READ, callable, promise);
+  }
+  public static void runReadTask(String filePath, Callable<Object> callable, Promise promise) {
+    runTask(getReadLane(filePath), callable, promise);
+  }
+  /**
+   * A read that JS can cancel by its request id or bound by a timeout.
+   * The promise is rejected at once, the worker thread is interrupted and the readers stop at the next chunk.
+   */
+  private static class ReadTask extends FutureTask<Object> implements PrioritizedTask {
+    private final String requestId;
+    private final Promise promise;
+    private final Runnable timeoutRunnable = () -> cancel("Timeout");
+    private final long sequence = taskSequence.getAndIncrement();
+    private ThreadPoolExecutor executor;
+    private volatile Priority priority;
+    private volatile String cancelReason = "Canceled";
+
+    ReadTask(String requestId, Callable<Object> callable, Promise promise, Priority priority) {
+      super(callable);
+      this.requestId = requestId;
+      this.promise = promise;
+      this.priority = priority;
+    }
+
+    @Override public Priority getPriority() { return priority; }
+    @Override public long getSequence() { return sequence; }
+
+    /**
+     * Move the task ahead if it is still queued, the queue only orders a task when it is added
+     */
+    synchronized boolean raisePriority(Priority priority) {
+      if (priority.compareTo(this.priority) >= 0) return false;
+      if (executor == null || !executor.getQueue().remove(this)) return false;
+      this.priority = priority;
+      executor.execute(this);
+      return true;
+    }
+
+    synchronized void execute(ThreadPoolExecutor executor) {
+      this.executor = executor;
+      executor.execute(this);
+    }
+
+    void cancel(String reason) {
+      cancelReason = reason;
+      cancel(true);
+    }
+
+    @Override
+    protected void done() {
+      handler.removeCallbacks(timeoutRunnable);
+      if (requestId != null) requests.remove(requestId, this);
+      if (isCancelled()) {
+        promise.reject("-1", cancelReason);
+        return;
+      }
+      try {
+        promise.resolve(get());
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause() == null ? e : e.getCause();
+        Log.e("TaskRunner", "execute error:");
+        cause.printStackTrace();
+        promise.reject("-1", cause.getMessage());
+      } catch (Exception e) {
+        promise.reject("-1", e.getMessage());
+      }
+    }
+  }
+
+  private static void settle(ArrayList<Promise> promises, Object result, Exception error) {
+    for (int i = 0; i < promises.size(); i++) {
+      Promise promise = promises.get(i);
+      if (error != null) promise.reject("-1", error.getMessage());
+      // a map is consumed by its promise, the other promises get a copy
+      else if (result instanceof WritableMap && i < promises.size() - 1) promise.resolve(((WritableMap) result).copy());
+      else promise.resolve(result);
+    }
+  }
+
+  /**
+   * Run a read, the identical reads that arrive while it is queued or running get its result instead of running again
+   * @param key identifies the operation and its arguments
+   */
+  public static void runSharedReadTask(String filePath, String key, Callable<Object> callable, Priority priority, Promise promise) {
+    synchronized (sharedReads) {
+      ArrayList<Promise> promises = sharedReads.get(key);
+      if (promises != null) {
+        promises.add(promise);
+        return;
+      }
+      promises = new ArrayList<>();
+      promises.add(promise);
+      sharedReads.put(key, promises);
+    }
+    Runnable task = () -> {
+      Object result = null;
+      Exception error = null;
+      try {
+        result = callable.call();
+      } catch (Exception e) {
+        Log.e("TaskRunner", "execute error:");
+        e.printStackTrace();
+        error = e;
+      }
+      ArrayList<Promise> promises;
+      synchronized (sharedReads) {
+        promises = sharedReads.remove(key);
+      }
+      settle(promises, result, error);
+    };
+    try {
+      TaskRunner.getExecutor(getReadLane(filePath)).execute(withPriority(priority, task));
+    } catch (Exception err) {
+      ArrayList<Promise> promises;
+      synchronized (sharedReads) {
+        promises = sharedReads.remove(key);
+      }
+      settle(promises, null, err);
+    }
+  }
+
+  /**
+   * @param key identifies the operation and its arguments, the identical reads are shared if they can not be canceled
+   * @param requestId null if the read can not be canceled
+   * @param timeout ms, 0 for no timeout
+   */
+  public static void runReadTask(String filePath, String key, Callable<Object> callable, Promise promise, String requestId, long timeout, Priority priority) {
+    if (requestId == null && timeout <= 0) {
+      runSharedReadTask(filePath, key, callable, priority, promise);
+      return;
+    }
+    ReadTask task = new ReadTask(requestId, callable, promise, priority);
+    if (requestId != null && requests.putIfAbsent(requestId, task) != null) {
+      promise.reject("-1", "Request id already exists: " + requestId);
+      return;
+    }
+    if (timeout > 0) handler.postDelayed(task.timeoutRunnable, timeout);
+    try {
+      task.execute(TaskRunner.getExecutor(getReadLane(filePath)));
+    } catch (Exception err) {
+      task.cancel(err.getMessage());
+    }
+  }
+
+  /**
+   * Raise the priority of a queued read, e.g. when its row becomes visible
+   * @return false if the read is not queued anymore or already has a higher priority
+   */
+  public static boolean setPriority(String requestId, Priority priority) {
+    ReadTask task = requests.get(requestId);
+    return task != null && task.raisePriority(priority);
+  }
+
+  /**
+   * @return whether the read was still queued or running
+   */
+  public static boolean cancel(String requestId) {
+    ReadTask task = requests.get(requestId);
+    if (task == null) return false;
+    task.cancel("Canceled");
+    return true;
+  }
+
+  public static void runWriteTask(Callable<Object> callable, Promise promise) {
+    runTask(Lane.WRITE, callable, promise);
+  }
+
+  public static WritableMap getQueueStats() {
+    WritableMap stats = Arguments.createMap();
+    for (Lane lane : Lane.values()) {
+      ThreadPoolExecutor executor = TaskRunner.getExecutor(lane);
+      WritableMap laneStats = Arguments.createMap();
+      laneStats.putInt("queued", executor.getQueue().size());
+      laneStats.putInt("active", executor.getActiveCount());
+      laneStats.putInt("threads", executor.getPoolSize());
+      laneStats.putInt("maxThreads", executor.getMaximumPoolSize());
+      stats.putMap(lane.name, laneStats);
+    }
+    return stats;
+  }
 }
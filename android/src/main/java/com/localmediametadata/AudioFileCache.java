@@ -0,0 +1,152 @@
+package com.localmediametadata;
+
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.ReadOptions;
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.Tag;
+import org.jaudiotagger.tag.images.Artwork;
+
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Memory-bounded LRU of the parsed files, so readMetadata, readPic and readLyric of the same file parse it once.
+ * An entry is only used while the size and last modified time of the file are unchanged and it read all the fields
+ * the caller needs, a running parse is shared by the reads that arrive meanwhile. The writes of the module drop
+ * the entry of the file. The cached files are only read, never committed.
+ */
+class AudioFileCache {
+  private static final long MAX_BYTES = 16 * 1024 * 1024;
+  // the headers and text fields of a parsed file
+  private static final int BASE_BYTES = 16 * 1024;
+
+  private static class Entry {
+    final long size;
+    final long lastModified;
+    final int fieldMask;
+    final FutureTask<AudioFile> future;
+    // 0 while the parse is running
+    long bytes = 0;
+
+    Entry(long size, long lastModified, int fieldMask, FutureTask<AudioFile> future) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.fieldMask = fieldMask;
+      this.future = future;
+    }
+
+    boolean isValid(long size, long lastModified) {
+      return this.size == size && this.lastModified == lastModified;
+    }
+  }
+
+  private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private static long totalBytes = 0;
+
+  /**
+   * @param lastModified 0 if unknown, the parse is then only shared while it runs
+   */
+  static AudioFile read(MediaFile mediaFile, String filePath, long size, long lastModified, ReadOptions options) throws Exception {
+    Entry entry;
+    boolean isOwner = false;
+    synchronized (entries) {
+      entry = entries.get(filePath);
+      boolean isValid = entry != null && entry.isValid(size, lastModified);
+      if (!isValid || (entry.fieldMask & options.getFieldMask()) != options.getFieldMask()) {
+        // read the fields of the cached parse too, so it still serves its own readers
+        int fieldMask = options.getFieldMask() | (isValid ? entry.fieldMask : 0);
+        ReadOptions readOptions = new ReadOptions(fieldMask);
+        if (entry != null) remove(filePath, entry);
+        entry = new Entry(size, lastModified, fieldMask, new FutureTask<>(() -> mediaFile.readAudioFile(readOptions)));
+        entries.put(filePath, entry);
+        isOwner = true;
+      }
+    }
+    if (isOwner) {
+      entry.future.run();
+      onParsed(filePath, entry);
+    }
+    try {
+      return entry.future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      // the parse of a canceled read was interrupted, it says nothing about the file
+      if (!isOwner && (cause instanceof InterruptedIOException || cause instanceof ClosedByInterruptException)) {
+        return mediaFile.readAudioFile(options);
+      }
+      throw cause instanceof Exception ? (Exception) cause : e;
+    }
+  }
+
+  private static void onParsed(String filePath, Entry entry) {
+    long bytes = -1;
+    if (entry.lastModified > 0) {
+      try {
+        bytes = estimateBytes(entry.future.get(), entry.fieldMask);
+      } catch (Exception ignored) {}
+    }
+    synchronized (entries) {
+      if (entries.get(filePath) != entry) return;
+      // a failed parse or a file that can not be validated is not kept
+      if (bytes < 0 || bytes > MAX_BYTES / 4) {
+        remove(filePath, entry);
+        return;
+      }
+      entry.bytes = bytes;
+      totalBytes += bytes;
+      trim();
+    }
+  }
+
+  private static long estimateBytes(AudioFile audioFile, int fieldMask) {
+    long bytes = BASE_BYTES;
+    Tag tag = audioFile.getTag();
+    if (tag == null) return bytes;
+    if ((fieldMask & ReadOptions.FIELD_ARTWORK) != 0) {
+      for (Artwork artwork : tag.getArtworkList()) {
+        byte[] data = artwork.getBinaryData();
+        if (data != null) bytes += data.length;
+      }
+    }
+    if ((fieldMask & ReadOptions.FIELD_LYRICS) != 0) bytes += tag.getFirst(FieldKey.LYRICS).length() * 2L;
+    return bytes;
+  }
+
+  private static void trim() {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (totalBytes > MAX_BYTES && iterator.hasNext()) {
+      Entry entry = iterator.next();
+      // the running parses are still shared
+      if (entry.bytes == 0) continue;
+      totalBytes -= entry.bytes;
+      iterator.remove();
+    }
+  }
+
+  private static void remove(String filePath, Entry entry) {
+    if (entries.get(filePath) != entry) return;
+    entries.remove(filePath);
+    totalBytes -= entry.bytes;
+  }
+
+  /**
+   * Drop the parsed file of a written file
+   */
+  static void remove(String filePath) {
+    synchronized (entries) {
+      Entry entry = entries.get(filePath);
+      if (entry != null) remove(filePath, entry);
+    }
+  }
+
+  static void clear() {
+    synchronized (entries) {
+      entries.clear();
+      totalBytes = 0;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.localmediametadata;
+
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.audio.AudioHeader;
+import org.jaudiotagger.audio.mp3.MP3AudioHeader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where the audio data of a file starts and ends. A tag edit that keeps the length and the audio range
+ * of the file only changed the bytes around the audio data, so only those ranges have to be written back.
+ */
+class AudioLayout {
+  // ID3v1 tag at the end of a MP3 file
+  private static final int MP3_TAIL_SIZE = 128;
+
+  final long length;
+  final long audioStart;
+  final long audioEnd;
+
+  private AudioLayout(long length, long audioStart, long audioEnd) {
+    this.length = length;
+    this.audioStart = audioStart;
+    this.audioEnd = audioEnd;
+  }
+
+  /**
+   * Only the formats whose writers never move the audio data without changing the file length are supported
+   * @return null if the format is not supported or the header can not be read
+   */
+  static AudioLayout read(File file) {
+    try {
+      long length = file.length();
+      switch (Utils.getFileExtension(file.getName()).toLowerCase()) {
+        case "mp3": {
+          MP3AudioHeader audioHeader = (MP3AudioHeader) AudioFileIO.readAudioHeader(file);
+          long audioStart = audioHeader.getMp3StartByte();
+          return new AudioLayout(length, audioStart, Math.max(audioStart, length - MP3_TAIL_SIZE));
+        }
+        case "flac":
+        case "wav": {
+          AudioHeader audioHeader = AudioFileIO.readAudioHeader(file);
+          Long audioStart = audioHeader.getAudioDataStartPosition();
+          Long audioEnd = audioHeader.getAudioDataEndPosition();
+          if (audioStart == null || audioEnd == null || audioStart > audioEnd || audioEnd > length) return null;
+          return new AudioLayout(length, audioStart, audioEnd);
+        }
+        default:
+          return null;
+      }
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return the [start, end) ranges that may differ, null if the audio data moved and the whole file has to be copied
+   */
+  static List<long[]> getChangedRanges(AudioLayout before, AudioLayout after) {
+    if (before == null || after == null) return null;
+    if (before.length != after.length || before.audioStart != after.audioStart || before.audioEnd != after.audioEnd) return null;
+    List<long[]> ranges = new ArrayList<>(2);
+    if (after.audioStart > 0) ranges.add(new long[]{0, after.audioStart});
+    if (after.audioEnd < after.length) ranges.add(new long[]{after.audioEnd, after.length});
+    return ranges;
+  }
+}
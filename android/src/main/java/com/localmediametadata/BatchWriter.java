@@ -0,0 +1,195 @@
+package com.localmediametadata;
+
+import android.os.Bundle;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Apply tag edits to many files in parallel on the write lane. Every storage volume gets its own limit of running writes,
+ * so the SD card keeps a narrow limit while the internal flash runs wider. The results are streamed back in chunks
+ * by the {@link #EVENT_NAME} event and the promise resolves with the result of every file.
+ * The edits go through {@link WriteQueue}, so they are still serialized with the other writes of the same file.
+ */
+public class BatchWriter {
+  public static final String EVENT_NAME = "LocalMediaMetadata_writeTagsBatch";
+  private static final int DEFAULT_CONCURRENCY = 2;
+  private static final int DEFAULT_REMOVABLE_CONCURRENCY = 1;
+  private static final int DEFAULT_CHUNK_SIZE = 20;
+  private static final ConcurrentHashMap<String, BatchWriter> tasks = new ConcurrentHashMap<>();
+
+  public static class Options {
+    int concurrency = DEFAULT_CONCURRENCY;
+    int removableConcurrency = DEFAULT_REMOVABLE_CONCURRENCY;
+    int chunkSize = DEFAULT_CHUNK_SIZE;
+  }
+
+  public static class Item {
+    final String filePath;
+    // the options of Metadata.writeTags
+    final Bundle options;
+    public Item(String filePath, Bundle options) {
+      this.filePath = filePath;
+      this.options = options;
+    }
+  }
+
+  private static class Volume {
+    final int limit;
+    final ArrayDeque<Integer> pendingItems = new ArrayDeque<>();
+    int runningCount = 0;
+    Volume(int limit) {
+      this.limit = Math.max(1, limit);
+    }
+  }
+
+  private static class Result {
+    final String filePath;
+    final String status;
+    final String error;
+    Result(String filePath, String status, String error) {
+      this.filePath = filePath;
+      this.status = status;
+      this.error = error;
+    }
+
+    WritableMap toMap() {
+      WritableMap map = Arguments.createMap();
+      map.putString("path", filePath);
+      map.putString("status", status);
+      if (error != null) map.putString("error", error);
+      return map;
+    }
+  }
+
+  private final ReactApplicationContext context;
+  private final String requestId;
+  private final List<Item> items;
+  private final Options options;
+  private final ChunkEmitter emitter;
+  private final Promise promise;
+  private final Result[] results;
+  // storage volume -> its pending writes
+  private final HashMap<String, Volume> volumes = new HashMap<>();
+  private final AtomicInteger pendingCount;
+  private final AtomicInteger changedCount = new AtomicInteger(0);
+  private final AtomicInteger unchangedCount = new AtomicInteger(0);
+  private final AtomicInteger failedCount = new AtomicInteger(0);
+  private final AtomicInteger canceledCount = new AtomicInteger(0);
+  private volatile boolean isCanceled = false;
+
+  private BatchWriter(ReactApplicationContext context, String requestId, List<Item> items, Options options, Promise promise) {
+    this.context = context;
+    this.requestId = requestId;
+    this.items = items;
+    this.options = options;
+    this.emitter = new ChunkEmitter(context, EVENT_NAME, requestId, options.chunkSize > 0 ? options.chunkSize : DEFAULT_CHUNK_SIZE);
+    this.promise = promise;
+    this.results = new Result[items.size()];
+    this.pendingCount = new AtomicInteger(items.size());
+  }
+
+  public static void start(ReactApplicationContext context, String requestId, List<Item> items, Options options, Promise promise) {
+    BatchWriter writer = new BatchWriter(context, requestId, items, options, promise);
+    if (tasks.putIfAbsent(requestId, writer) != null) {
+      promise.reject("-1", "Request id already exists: " + requestId);
+      return;
+    }
+    writer.run();
+  }
+  /**
+   * The files not started yet are skipped, the running writes are finished
+   */
+  public static boolean cancel(String requestId) {
+    BatchWriter writer = tasks.get(requestId);
+    if (writer == null) return false;
+    writer.isCanceled = true;
+    return true;
+  }
+
+  private Volume getVolume(String filePath) {
+    String name = Utils.getStorageVolume(filePath);
+    Volume volume = volumes.get(name);
+    if (volume == null) {
+      int limit = Utils.isRemovableStorage(filePath) ? options.removableConcurrency : options.concurrency;
+      volume = new Volume(limit);
+      volumes.put(name, volume);
+    }
+    return volume;
+  }
+
+  private void run() {
+    if (items.isEmpty()) {
+      finish();
+      return;
+    }
+    for (int i = 0; i < items.size(); i++) getVolume(items.get(i).filePath).pendingItems.add(i);
+    for (Volume volume : volumes.values()) schedule(volume);
+  }
+
+  /**
+   * Start the pending writes of the volume up to its limit, a slot is freed when the callback of its write is called,
+   * an edit merged into a queued edit of the same file keeps its slot until that write is committed
+   */
+  private void schedule(Volume volume) {
+    while (true) {
+      int index;
+      synchronized (volume) {
+        if (volume.runningCount >= volume.limit || volume.pendingItems.isEmpty()) return;
+        index = volume.pendingItems.poll();
+        if (!isCanceled) volume.runningCount++;
+      }
+      Item item = items.get(index);
+      if (isCanceled) {
+        complete(index, new Result(item.filePath, "canceled", null));
+        continue;
+      }
+      WriteQueue.write(context, item.filePath, item.options, AsyncTask.getExecutor(AsyncTask.Lane.WRITE), (isChanged, error) -> {
+        synchronized (volume) {
+          volume.runningCount--;
+        }
+        complete(index, error == null
+          ? new Result(item.filePath, isChanged ? "changed" : "unchanged", null)
+          : new Result(item.filePath, "failed", error.getMessage()));
+        schedule(volume);
+      });
+    }
+  }
+
+  private void complete(int index, Result result) {
+    results[index] = result;
+    switch (result.status) {
+      case "changed": changedCount.incrementAndGet(); break;
+      case "unchanged": unchangedCount.incrementAndGet(); break;
+      case "failed": failedCount.incrementAndGet(); break;
+      default: canceledCount.incrementAndGet(); break;
+    }
+    emitter.add(result.toMap());
+    if (pendingCount.decrementAndGet() == 0) finish();
+  }
+
+  private void finish() {
+    tasks.remove(requestId);
+    emitter.flush(true);
+    WritableArray list = Arguments.createArray();
+    for (Result result : results) list.pushMap(result.toMap());
+    WritableMap result = Arguments.createMap();
+    result.putString("requestId", requestId);
+    result.putInt("total", results.length);
+    result.putInt("changed", changedCount.get());
+    result.putInt("unchanged", unchangedCount.get());
+    result.putInt("failed", failedCount.get());
+    result.putInt("canceled", canceledCount.get());
+    result.putArray("results", list);
+    promise.resolve(result);
+  }
+}
@@ -0,0 +1,41 @@
+package com.localmediametadata;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Collect the results of a long running request and send them to JS in chunks
+ */
+class ChunkEmitter {
+  private final ReactApplicationContext context;
+  private final String eventName;
+  private final String requestId;
+  private final int chunkSize;
+  private WritableArray pendingItems = Arguments.createArray();
+  private int pendingCount = 0;
+
+  ChunkEmitter(ReactApplicationContext context, String eventName, String requestId, int chunkSize) {
+    this.context = context;
+    this.eventName = eventName;
+    this.requestId = requestId;
+    this.chunkSize = chunkSize;
+  }
+
+  synchronized void add(WritableMap item) {
+    pendingItems.pushMap(item);
+    if (++pendingCount >= chunkSize) flush(false);
+  }
+
+  synchronized void flush(boolean isDone) {
+    if (pendingCount == 0 && !isDone) return;
+    WritableMap params = Arguments.createMap();
+    params.putString("requestId", requestId);
+    params.putArray("items", pendingItems);
+    params.putBoolean("done", isDone);
+    Utils.sendEvent(context, eventName, params);
+    pendingItems = Arguments.createArray();
+    pendingCount = 0;
+  }
+}
@@ -0,0 +1,32 @@
+package com.localmediametadata;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import org.jaudiotagger.audio.generic.ChannelSource;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a document by a channel over its file descriptor, so it can be parsed without a temp copy
+ */
+class DocumentChannelSource implements ChannelSource {
+  private final Context context;
+  private final Uri uri;
+
+  DocumentChannelSource(Context context, Uri uri) {
+    this.context = context;
+    this.uri = uri;
+  }
+
+  @Override
+  public FileChannel open() throws IOException {
+    ParcelFileDescriptor parcelFileDescriptor = context.getContentResolver().openFileDescriptor(uri, "r");
+    if (parcelFileDescriptor == null) throw new FileNotFoundException("Unable to open " + uri);
+    // closing the channel closes the stream and the descriptor
+    return new ParcelFileDescriptor.AutoCloseInputStream(parcelFileDescriptor).getChannel();
+  }
+}
@@ -0,0 +1,226 @@
+package com.localmediametadata;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.provider.DocumentsContract;
+import android.provider.OpenableColumns;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The name, size, last modified time and MIME type of a document, read by one query.
+ * DocumentFile runs a query for each of them, which is an IPC call to the provider every time.
+ * {@link #listChildren} reads all the children of a tree directory by one query,
+ * {@link #prefetch} uses it to read the documents of a batch, the reads take them from there.
+ * The recent infos are kept shortly for {@link #getCached}, the synchronous lookups of the JS thread can not query.
+ */
+class DocumentInfo {
+  private static final String[] PROJECTION = new String[]{
+    DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+    DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+    DocumentsContract.Document.COLUMN_SIZE,
+    DocumentsContract.Document.COLUMN_LAST_MODIFIED,
+    DocumentsContract.Document.COLUMN_MIME_TYPE,
+  };
+  // the content uris of the other providers, e.g. MediaStore, only have the openable columns
+  private static final String[] OPENABLE_PROJECTION = new String[]{
+    OpenableColumns.DISPLAY_NAME,
+    OpenableColumns.SIZE,
+  };
+  // a prefetched info is used once and only shortly after, so a later change of the file is still seen
+  private static final long PREFETCH_MAX_AGE = 10_000;
+  private static final int PREFETCH_MAX_COUNT = 1000;
+  private static final LinkedHashMap<String, DocumentInfo> prefetched = new LinkedHashMap<>();
+  private static final int RECENT_MAX_COUNT = 1000;
+  // the full listings of the recently prefetched directories, the later rounds of a batch take their documents from there
+  private static final int LISTING_MAX_COUNT = 16;
+  private static final LinkedHashMap<String, Listing> listings = new LinkedHashMap<>(16, 0.75f, true);
+
+  private static class Listing {
+    // document id -> info
+    final HashMap<String, DocumentInfo> children;
+    final long createTime = SystemClock.elapsedRealtime();
+
+    Listing(List<DocumentInfo> children) {
+      this.children = new HashMap<>(children.size() * 2);
+      for (DocumentInfo child : children) {
+        if (child.documentId != null) this.children.put(child.documentId, child);
+      }
+    }
+  }
+  private static final LinkedHashMap<String, DocumentInfo> recent = new LinkedHashMap<>(64, 0.75f, true);
+
+  // null if the uri is not a document
+  final String documentId;
+  final String name;
+  final long size;
+  final long lastModified;
+  final String mimeType;
+  private final long createTime = SystemClock.elapsedRealtime();
+
+  private DocumentInfo(Cursor cursor) {
+    documentId = getString(cursor, DocumentsContract.Document.COLUMN_DOCUMENT_ID);
+    name = getString(cursor, DocumentsContract.Document.COLUMN_DISPLAY_NAME);
+    size = getLong(cursor, DocumentsContract.Document.COLUMN_SIZE);
+    lastModified = getLong(cursor, DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+    mimeType = getString(cursor, DocumentsContract.Document.COLUMN_MIME_TYPE);
+  }
+
+  private static String getString(Cursor cursor, String column) {
+    int index = cursor.getColumnIndex(column);
+    return index < 0 || cursor.isNull(index) ? null : cursor.getString(index);
+  }
+  private static long getLong(Cursor cursor, String column) {
+    int index = cursor.getColumnIndex(column);
+    return index < 0 || cursor.isNull(index) ? 0 : cursor.getLong(index);
+  }
+
+  boolean isDirectory() {
+    return DocumentsContract.Document.MIME_TYPE_DIR.equals(mimeType);
+  }
+
+  /**
+   * @param path the path the document was prefetched by
+   * @return null if the document does not exist or can not be queried
+   */
+  static DocumentInfo get(Context context, String path, Uri uri) {
+    synchronized (prefetched) {
+      DocumentInfo info = prefetched.remove(path);
+      if (info != null && SystemClock.elapsedRealtime() - info.createTime < PREFETCH_MAX_AGE) return info;
+    }
+    String[] projection = DocumentsContract.isDocumentUri(context, uri) ? PROJECTION : OPENABLE_PROJECTION;
+    try (Cursor cursor = context.getContentResolver().query(uri, projection, null, null, null)) {
+      if (cursor != null && cursor.moveToFirst()) {
+        DocumentInfo info = new DocumentInfo(cursor);
+        synchronized (prefetched) {
+          recent.put(path, info);
+          trim(recent, RECENT_MAX_COUNT);
+        }
+        return info;
+      }
+    } catch (Exception ignored) {}
+    return null;
+  }
+
+  /**
+   * The info of a recent query or prefetch of the path, it never queries the provider
+   * @return null if there is none of the last {@link #PREFETCH_MAX_AGE} ms
+   */
+  static DocumentInfo getCached(String path) {
+    long now = SystemClock.elapsedRealtime();
+    synchronized (prefetched) {
+      DocumentInfo info = prefetched.get(path);
+      if (info == null || now - info.createTime >= PREFETCH_MAX_AGE) info = recent.get(path);
+      return info == null || now - info.createTime >= PREFETCH_MAX_AGE ? null : info;
+    }
+  }
+
+  /**
+   * Drop the recent info of a written document
+   */
+  static void remove(String path) {
+    synchronized (prefetched) {
+      prefetched.remove(path);
+      recent.remove(path);
+      // the listing of its directory holds the old size too
+      listings.clear();
+    }
+  }
+
+  private static <T> void trim(LinkedHashMap<String, T> infos, int maxCount) {
+    Iterator<String> iterator = infos.keySet().iterator();
+    while (infos.size() > maxCount) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * All the children of a tree directory by one query
+   * @return null if the directory can not be listed
+   */
+  static List<DocumentInfo> listChildren(Context context, Uri treeUri, String parentId) {
+    Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(treeUri, parentId);
+    try (Cursor cursor = context.getContentResolver().query(childrenUri, PROJECTION, null, null, null)) {
+      if (cursor == null) return null;
+      List<DocumentInfo> children = new ArrayList<>(cursor.getCount());
+      while (cursor.moveToNext()) children.add(new DocumentInfo(cursor));
+      return children;
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * The parent document id, only the external storage provider has ids made of the path, e.g. "primary:Music/a.mp3"
+   */
+  static String getParentDocumentId(Uri uri, String documentId) {
+    if (!"com.android.externalstorage.documents".equals(uri.getAuthority())) return null;
+    int colonIndex = documentId.indexOf(':');
+    int slashIndex = documentId.lastIndexOf('/');
+    if (colonIndex < 0 || slashIndex == documentId.length() - 1) return null;
+    return slashIndex > colonIndex ? documentId.substring(0, slashIndex) : documentId.substring(0, colonIndex + 1);
+  }
+
+  /**
+   * Query the tree documents of the paths grouped by their directory, one query for every directory,
+   * the listing is kept for {@link #PREFETCH_MAX_AGE} ms so the next rounds of a batch do not list the directory again
+   */
+  static void prefetch(Context context, List<String> paths) {
+    // tree uri|parent id -> document id -> path
+    HashMap<String, HashMap<String, String>> groups = new HashMap<>();
+    HashMap<String, Uri> treeUris = new HashMap<>();
+    for (String path : paths) {
+      if (!Utils.isContentUri(path)) continue;
+      try {
+        Uri uri = Uri.parse(path);
+        if (!Utils.isTreeUri(uri)) continue;
+        String documentId = DocumentsContract.getDocumentId(uri);
+        String parentId = getParentDocumentId(uri, documentId);
+        if (parentId == null) continue;
+        Uri treeUri = DocumentsContract.buildTreeDocumentUri(uri.getAuthority(), DocumentsContract.getTreeDocumentId(uri));
+        String key = treeUri + "|" + parentId;
+        HashMap<String, String> group = groups.get(key);
+        if (group == null) {
+          group = new HashMap<>();
+          groups.put(key, group);
+          treeUris.put(key, treeUri);
+        }
+        group.put(documentId, path);
+      } catch (Exception ignored) {}
+    }
+    for (Map.Entry<String, HashMap<String, String>> entry : groups.entrySet()) {
+      String key = entry.getKey();
+      HashMap<String, String> group = entry.getValue();
+      Listing listing;
+      synchronized (prefetched) {
+        listing = listings.get(key);
+      }
+      if (listing == null || SystemClock.elapsedRealtime() - listing.createTime >= PREFETCH_MAX_AGE) {
+        // a single document is queried by itself when it is read
+        if (group.size() < 2) continue;
+        List<DocumentInfo> children = listChildren(context, treeUris.get(key), key.substring(key.indexOf('|') + 1));
+        if (children == null) continue;
+        listing = new Listing(children);
+        synchronized (prefetched) {
+          listings.put(key, listing);
+          trim(listings, LISTING_MAX_COUNT);
+        }
+      }
+      synchronized (prefetched) {
+        for (Map.Entry<String, String> document : group.entrySet()) {
+          DocumentInfo child = listing.children.get(document.getKey());
+          if (child != null) prefetched.put(document.getValue(), child);
+        }
+        trim(prefetched, PREFETCH_MAX_COUNT);
+      }
+    }
+  }
+}
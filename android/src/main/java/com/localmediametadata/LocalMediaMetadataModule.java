@@ -1,5 +1,7 @@
 package com.localmediametadata;
 
+import android.os.Bundle;
+
 import androidx.annotation.NonNull;
 
 import com.facebook.react.bridge.Arguments;
@@ -7,10 +9,15 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.module.annotations.ReactModule;
 import com.localmediametadata.media3.MetadataMedia3;
 
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
 @ReactModule(name = LocalMediaMetadataModule.NAME)
 public class LocalMediaMetadataModule extends ReactContextBaseJavaModule {
   public static final String NAME = "LocalMediaMetadata";
@@ -20,6 +27,7 @@ public class LocalMediaMetadataModule extends ReactContextBaseJavaModule {
   public LocalMediaMetadataModule(ReactApplicationContext reactContext) {
     super(reactContext);
     this.reactContext = reactContext;
+    Utils.registerStorageReceiver(reactContext);
   }
 
   @Override
@@ -28,21 +36,135 @@ public class LocalMediaMetadataModule extends ReactContextBaseJavaModule {
     return NAME;
   }
 
-//  @ReactMethod
-//  public void scanFiles(String dirPath, ReadableArray _extNames, Promise promise) {
-//    ArrayList<String> extNames = new ArrayList<>();
-//    for (Object obj : _extNames.toArrayList()) extNames.add(String.valueOf(obj));
-//
-//    AsyncTask.runTask(new MetadataCallable.ScanFiles(reactContext, dirPath, extNames), promise);
-//  }
+  private static boolean hasValue(ReadableMap map, String key) {
+    return map.hasKey(key) && !map.isNull(key);
+  }
+
+  @ReactMethod
+  public void scanFiles(String dirPath, ReadableMap options, Promise promise) {
+    MediaScanner.Options scanOptions = new MediaScanner.Options();
+    if (hasValue(options, "extNames")) {
+      ReadableArray extNames = options.getArray("extNames");
+      for (int i = 0; i < extNames.size(); i++) scanOptions.extNames.add(extNames.getString(i));
+    }
+    if (hasValue(options, "isCheckMagic")) scanOptions.isCheckMagic = options.getBoolean("isCheckMagic");
+    if (hasValue(options, "isReadMetadata")) scanOptions.isReadMetadata = options.getBoolean("isReadMetadata");
+    if (hasValue(options, "isRecursive")) scanOptions.isRecursive = options.getBoolean("isRecursive");
+    if (hasValue(options, "isIncremental")) scanOptions.isIncremental = options.getBoolean("isIncremental");
+    if (hasValue(options, "chunkSize")) scanOptions.chunkSize = options.getInt("chunkSize");
+    MediaScanner.start(reactContext, options.getString("requestId"), dirPath, scanOptions, promise);
+  }
+  @ReactMethod
+  public void cancelScanFiles(String requestId, Promise promise) {
+    promise.resolve(MediaScanner.cancel(requestId));
+  }
+  @ReactMethod
+  public void clearScanJournal(Promise promise) {
+    ScanJournal.clear(reactContext);
+    promise.resolve(null);
+  }
 
+  /**
+   * The reads accept a `requestId` to cancel them or raise their priority, a `timeout` in ms and a `priority`,
+   * the pictures read by media3 are not cancelable
+   */
+  private static void runReadTask(String filePath, String key, Callable<Object> callable, ReadableMap options, Promise promise) {
+    String requestId = hasValue(options, "requestId") ? options.getString("requestId") : null;
+    long timeout = hasValue(options, "timeout") ? (long) options.getDouble("timeout") : 0;
+    AsyncTask.Priority priority = AsyncTask.Priority.parse(hasValue(options, "priority") ? options.getString("priority") : null);
+    AsyncTask.runReadTask(filePath, key, callable, promise, requestId, timeout, priority);
+  }
   @ReactMethod
-  public void readMetadata(String filePath, Promise promise) {
-    AsyncTask.runTask(new MetadataCallable.ReadMetadata(reactContext, filePath), promise);
+  public void cancelRead(String requestId, Promise promise) {
+    promise.resolve(AsyncTask.cancel(requestId));
+  }
+  @ReactMethod
+  public void setReadPriority(String requestId, String priority, Promise promise) {
+    promise.resolve(AsyncTask.setPriority(requestId, AsyncTask.Priority.parse(priority)));
+  }
+
+  @ReactMethod
+  public void readMetadata(String filePath, ReadableMap options, Promise promise) {
+    runReadTask(filePath, "readMetadata|" + filePath, new MetadataCallable.ReadMetadata(reactContext, filePath), options, promise);
+  }
+  /**
+   * Synchronous lookups of the caches for the list rows, they never read the audio file
+   */
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  public WritableMap getCachedMetadata(String filePath) {
+    try {
+      return Metadata.getCachedMetadata(reactContext, filePath);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  public String getCachedPicThumbnail(String filePath, int maxSize) {
+    if (maxSize <= 0) return null;
+    try {
+      MediaFile mediaFile = new MediaFile(reactContext, filePath);
+      if (!mediaFile.useCachedInfo()) return null;
+      ThumbnailCache cache = ThumbnailCache.getInstance(reactContext);
+      return cache.getIfLoaded(ThumbnailCache.createKey(mediaFile, filePath, maxSize));
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  @ReactMethod
+  public void readAudioInfo(String filePath, ReadableMap options, Promise promise) {
+    runReadTask(filePath, "readAudioInfo|" + filePath, new MetadataCallable.ReadAudioInfo(reactContext, filePath), options, promise);
+  }
+  @ReactMethod
+  public void readMetadataBatch(ReadableArray filePaths, ReadableMap options, Promise promise) {
+    ArrayList<String> paths = new ArrayList<>();
+    for (int i = 0; i < filePaths.size(); i++) paths.add(filePaths.getString(i));
+    int chunkSize = hasValue(options, "chunkSize") ? options.getInt("chunkSize") : 0;
+    AsyncTask.Priority priority = hasValue(options, "priority") ? AsyncTask.Priority.parse(options.getString("priority")) : AsyncTask.Priority.PREFETCH;
+    boolean isPreferMediaStore = hasValue(options, "isPreferMediaStore") && options.getBoolean("isPreferMediaStore");
+    MetadataBatch.start(reactContext, options.getString("requestId"), paths, chunkSize, priority, isPreferMediaStore, promise);
+  }
+  @ReactMethod
+  public void cancelReadMetadataBatch(String requestId, Promise promise) {
+    promise.resolve(MetadataBatch.cancel(requestId));
+  }
+  @ReactMethod
+  public void clearMetadataIndex(Promise promise) {
+    MetadataIndex.getInstance(reactContext).clear();
+    AudioFileCache.clear();
+    promise.resolve(null);
   }
   @ReactMethod
   public void writeMetadata(String filePath, ReadableMap metadata, boolean isOverwrite, Promise promise) {
-    AsyncTask.runTask(new MetadataCallable.WriteMetadata(reactContext, filePath, Arguments.toBundle(metadata), isOverwrite), promise);
+    Bundle options = new Bundle();
+    options.putBundle("metadata", Arguments.toBundle(metadata));
+    options.putBoolean("isOverwrite", isOverwrite);
+    WriteQueue.write(reactContext, filePath, options, promise);
+  }
+
+  @ReactMethod
+  public void writeTags(String filePath, ReadableMap options, Promise promise) {
+    WriteQueue.write(reactContext, filePath, Arguments.toBundle(options), promise);
+  }
+
+  @ReactMethod
+  public void writeTagsBatch(ReadableArray items, ReadableMap options, Promise promise) {
+    ArrayList<BatchWriter.Item> batchItems = new ArrayList<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      ReadableMap item = items.getMap(i);
+      Bundle itemOptions = Arguments.toBundle(item);
+      itemOptions.remove("filePath");
+      batchItems.add(new BatchWriter.Item(item.getString("filePath"), itemOptions));
+    }
+    BatchWriter.Options batchOptions = new BatchWriter.Options();
+    if (hasValue(options, "concurrency")) batchOptions.concurrency = options.getInt("concurrency");
+    if (hasValue(options, "removableConcurrency")) batchOptions.removableConcurrency = options.getInt("removableConcurrency");
+    if (hasValue(options, "chunkSize")) batchOptions.chunkSize = options.getInt("chunkSize");
+    BatchWriter.start(reactContext, options.getString("requestId"), batchItems, batchOptions, promise);
+  }
+  @ReactMethod
+  public void cancelWriteTagsBatch(String requestId, Promise promise) {
+    promise.resolve(BatchWriter.cancel(requestId));
   }
 
   private static boolean isSupportMedia3Pic(String filePath) {
@@ -55,24 +177,67 @@ public class LocalMediaMetadataModule extends ReactContextBaseJavaModule {
     }
   }
   @ReactMethod
-  public void readPic(String filePath, String picDir, Promise promise) {
+  public void readPic(String filePath, String picDir, ReadableMap options, Promise promise) {
     if (isSupportMedia3Pic(filePath)) {
       MetadataMedia3.readPic(reactContext, filePath, picDir, promise);
     } else {
-      AsyncTask.runTask(new MetadataCallable.ReadPic(reactContext, filePath, picDir), promise);
+      runReadTask(filePath, "readPic|" + filePath + "|" + picDir, new MetadataCallable.ReadPic(reactContext, filePath, picDir), options, promise);
+    }
+  }
+  @ReactMethod
+  public void readPicThumbnail(String filePath, int maxSize, ReadableMap options, Promise promise) {
+    if (maxSize <= 0) {
+      promise.reject("-1", "Invalid max size: " + maxSize);
+      return;
+    }
+    if (isSupportMedia3Pic(filePath)) {
+      AsyncTask.getExecutor(AsyncTask.getReadLane(filePath)).execute(() -> {
+        try {
+          String key = ThumbnailCache.createKey(new MediaFile(reactContext, filePath), filePath, maxSize);
+          String thumbnailPath = ThumbnailCache.getInstance(reactContext).get(key);
+          if (thumbnailPath == null) MetadataMedia3.readPicThumbnail(reactContext, filePath, key, maxSize, promise);
+          else promise.resolve(thumbnailPath);
+        } catch (Exception e) {
+          promise.reject("-1", "read failed: " + e.getMessage());
+        }
+      });
+    } else {
+      runReadTask(filePath, "readPicThumbnail|" + filePath + "|" + maxSize, new MetadataCallable.ReadPicThumbnail(reactContext, filePath, maxSize), options, promise);
     }
   }
   @ReactMethod
+  public void clearThumbnailCache(Promise promise) {
+    AsyncTask.runTask(() -> {
+      ThumbnailCache.getInstance(reactContext).clear();
+      return null;
+    }, promise);
+  }
+  @ReactMethod
   public void writePic(String filePath, String picPath, Promise promise) {
-    AsyncTask.runTask(new MetadataCallable.WritePic(reactContext, filePath, picPath), promise);
+    Bundle options = new Bundle();
+    options.putString("picPath", picPath);
+    WriteQueue.write(reactContext, filePath, options, promise);
   }
 
   @ReactMethod
-  public void readLyric(String filePath, boolean isReadLrcFile, Promise promise) {
-    AsyncTask.runTask(new MetadataCallable.ReadLyric(reactContext, filePath, isReadLrcFile), promise);
+  public void readLyric(String filePath, boolean isReadLrcFile, ReadableMap options, Promise promise) {
+    runReadTask(filePath, "readLyric|" + filePath + "|" + isReadLrcFile, new MetadataCallable.ReadLyric(reactContext, filePath, isReadLrcFile), options, promise);
   }
   @ReactMethod
   public void writeLyric(String filePath, String lyric, Promise promise) {
-    AsyncTask.runTask(new MetadataCallable.WriteLyric(reactContext, filePath, lyric), promise);
+    Bundle options = new Bundle();
+    options.putString("lyric", lyric);
+    WriteQueue.write(reactContext, filePath, options, promise);
+  }
+
+  // Required for the NativeEventEmitter
+  @ReactMethod
+  public void addListener(String eventName) {}
+  @ReactMethod
+  public void removeListeners(double count) {}
+
+  @ReactMethod
+  public void getTaskQueueStats(Promise promise) {
+    promise.resolve(AsyncTask.getQueueStats());
   }
 }
@@ -0,0 +1,132 @@
+package com.localmediametadata;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.provider.DocumentsContract;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The `.lrc` files of the recently used directories, listed once on the first lookup of a directory and kept
+ * while its modified time is unchanged, which changes when a file is added or removed. Most tracks have no
+ * sidecar file, so the lookup answers without probing a sibling path for every track.
+ * A directory of a `content://` tree is only checked again after {@link #TREE_CHECK_INTERVAL} ms,
+ * the check is an IPC call to the provider.
+ */
+class LyricSidecarIndex {
+  private static final String EXT = ".lrc";
+  private static final int MAX_DIR_COUNT = 64;
+  private static final long TREE_CHECK_INTERVAL = 5000;
+
+  private static class DirIndex {
+    final long lastModified;
+    // lower case lyric file name -> path
+    final HashMap<String, String> files;
+    volatile long checkTime = SystemClock.elapsedRealtime();
+
+    DirIndex(long lastModified, HashMap<String, String> files) {
+      this.lastModified = lastModified;
+      this.files = files;
+    }
+  }
+
+  private static final LinkedHashMap<String, DirIndex> dirs = new LinkedHashMap<>(16, 0.75f, true);
+
+  private static DirIndex getDir(String dirKey) {
+    synchronized (dirs) {
+      return dirs.get(dirKey);
+    }
+  }
+  private static void putDir(String dirKey, DirIndex dir) {
+    synchronized (dirs) {
+      dirs.put(dirKey, dir);
+      Iterator<String> iterator = dirs.keySet().iterator();
+      while (dirs.size() > MAX_DIR_COUNT) {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * The name is compared in lower case, e.g. `Song.LRC` is the lyric of `song.mp3`, as the shared storage ignores the case
+   */
+  private static String getLyricName(String fileName) {
+    return (Utils.getName(fileName) + EXT).toLowerCase(Locale.ROOT);
+  }
+  private static boolean isLyricFile(String name) {
+    return name.regionMatches(true, name.length() - EXT.length(), EXT, 0, EXT.length());
+  }
+
+  /**
+   * @return the path of the sidecar lyric file, "" if there is none, null if the directory can not be listed
+   */
+  static String find(Context context, String filePath) {
+    try {
+      if (!Utils.isContentUri(filePath)) return findFile(Utils.parsePathToFile(filePath));
+      Uri uri = Uri.parse(filePath);
+      return Utils.isTreeUri(uri) ? findDocument(context, uri) : null;
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private static String findFile(File file) {
+    File dir = file.getParentFile();
+    if (dir == null) return null;
+    long lastModified = dir.lastModified();
+    if (lastModified <= 0) return null;
+    String dirKey = dir.getPath();
+    DirIndex index = getDir(dirKey);
+    if (index == null || index.lastModified != lastModified) {
+      String[] names = dir.list();
+      if (names == null) return null;
+      HashMap<String, String> files = new HashMap<>();
+      for (String name : names) {
+        if (isLyricFile(name)) files.put(name.toLowerCase(Locale.ROOT), new File(dir, name).getPath());
+      }
+      index = new DirIndex(lastModified, files);
+      putDir(dirKey, index);
+    }
+    String path = index.files.get(getLyricName(file.getName()));
+    return path == null ? "" : path;
+  }
+
+  private static String findDocument(Context context, Uri uri) {
+    String documentId = DocumentsContract.getDocumentId(uri);
+    String parentId = DocumentInfo.getParentDocumentId(uri, documentId);
+    if (parentId == null) return null;
+    Uri treeUri = DocumentsContract.buildTreeDocumentUri(uri.getAuthority(), DocumentsContract.getTreeDocumentId(uri));
+    Uri dirUri = DocumentsContract.buildDocumentUriUsingTree(treeUri, parentId);
+    String dirKey = dirUri.toString();
+    DirIndex index = getDir(dirKey);
+    long now = SystemClock.elapsedRealtime();
+    if (index == null || now - index.checkTime >= TREE_CHECK_INTERVAL) {
+      DocumentInfo dirInfo = DocumentInfo.get(context, dirKey, dirUri);
+      if (dirInfo == null || dirInfo.lastModified <= 0) return null;
+      if (index != null && index.lastModified == dirInfo.lastModified) index.checkTime = now;
+      else {
+        List<DocumentInfo> children = DocumentInfo.listChildren(context, treeUri, parentId);
+        if (children == null) return null;
+        HashMap<String, String> files = new HashMap<>();
+        for (DocumentInfo child : children) {
+          if (child.name != null && child.documentId != null && isLyricFile(child.name)) {
+            files.put(child.name.toLowerCase(Locale.ROOT), DocumentsContract.buildDocumentUriUsingTree(treeUri, child.documentId).toString());
+          }
+        }
+        index = new DirIndex(dirInfo.lastModified, files);
+        putDir(dirKey, index);
+      }
+    }
+    // the name is the last part of the path id, e.g. "primary:Music/a.mp3"
+    String name = documentId.substring(Math.max(documentId.indexOf(':'), documentId.lastIndexOf('/')) + 1);
+    String path = index.files.get(getLyricName(name));
+    return path == null ? "" : path;
+  }
+}
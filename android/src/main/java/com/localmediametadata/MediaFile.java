@@ -8,21 +8,41 @@ import androidx.documentfile.provider.DocumentFile;
 
 import com.facebook.react.bridge.ReactApplicationContext;
 
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.audio.AudioHeader;
+import org.jaudiotagger.audio.ReadOptions;
+
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.util.List;
 import java.util.UUID;
 
 public class MediaFile {
   final ReactApplicationContext context;
+  private final String path;
   private File file = null;
   private DocumentFile dFile = null;
+  // name, size and modified time of the document, read by one query on the first use
+  private DocumentInfo info = null;
+  private boolean isInfoLoaded = false;
   private ParcelFileDescriptor parcelFileDescriptor = null;
   private File tempFile;
+  private AudioLayout tempFileLayout = null;
+  private File readFile = null;
+  private boolean isReadFileCreated = false;
   private boolean isWrite;
   MediaFile(ReactApplicationContext context, String path) {
     this.context = context;
+    this.path = path;
     if (Utils.isContentUri(path)) {
       try {
         Uri uri = Uri.parse(path);
@@ -46,7 +66,7 @@ public class MediaFile {
   }
 
   private File createTempFile() throws IOException {
-    this.tempFile = new File(createPath(isDocFile() ? dFile.getName() : file.getName()));
+    this.tempFile = new File(createPath(getName()));
     Log.d("MediaFile", "creating temp file: " + tempFile.getAbsolutePath());
     try (InputStream inputStream = isDocFile() ? Utils.createInputStream(context, dFile) : Utils.createInputStream(file);
          OutputStream outputStream = Utils.createOutputStream(tempFile)) {
@@ -56,18 +76,27 @@ public class MediaFile {
         outputStream.write(buffer, 0, length);
       }
     }
+    // the temp file still equals the original file here, so its layout is the one of the original file
+    tempFileLayout = isWrite ? AudioLayout.read(tempFile) : null;
     return tempFile;
   }
-  private File createFileFromDocumentFile(boolean isWrite) throws IOException {
-    if (!dFile.exists()) return null;
-    String name = dFile.getName();
+  private File createDescriptorFile(boolean isWrite) {
+    String name = getName();
     try {
-      ParcelFileDescriptor parcelFileDescriptor = context.getContentResolver().openFileDescriptor(dFile.getUri(), isWrite ? "rw" : "r");
+      parcelFileDescriptor = context.getContentResolver().openFileDescriptor(dFile.getUri(), isWrite ? "rw" : "r");
       String linkFileName = "/proc/self/fd/" + parcelFileDescriptor.getFd();
       File file = new DescriptorFile(linkFileName, name);
       if (file.canRead() && (!isWrite || file.canWrite())) return file;
-    } catch (Exception ignored) { closeFile(); }
-    return createTempFile();
+    } catch (Exception ignored) {}
+    try {
+      closeFile();
+    } catch (Exception ignored) {}
+    return null;
+  }
+  private File createFileFromDocumentFile(boolean isWrite) throws IOException {
+    if (!exists()) return null;
+    File file = createDescriptorFile(isWrite);
+    return file == null ? createTempFile() : file;
   }
   private File createFile(boolean isWrite) throws IOException {
     if (!isWrite || file.canWrite()) return file;
@@ -79,10 +108,81 @@ public class MediaFile {
       ? this.createFileFromDocumentFile(isWrite)
       : this.createFile(isWrite);
   }
+  /**
+   * The file that can be read in place, null if the document has no readable path and would need a temp copy
+   */
+  public File getReadFile() {
+    if (!isDocFile()) return file;
+    if (!isReadFileCreated) {
+      isReadFileCreated = true;
+      readFile = exists() ? createDescriptorFile(false) : null;
+    }
+    return readFile;
+  }
+  private DocumentChannelSource getChannelSource() {
+    if (!isDocFile() || !exists() || !AudioFileIO.isChannelSourceSupported(new File(getName()))) return null;
+    return new DocumentChannelSource(context, dFile.getUri());
+  }
+  /**
+   * Whether the read failed because the thread was interrupted by a cancel, it says nothing about the file then
+   */
+  private static boolean isInterrupted(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause instanceof InterruptedIOException || cause instanceof ClosedByInterruptException) return true;
+    }
+    return Thread.currentThread().isInterrupted();
+  }
+  /**
+   * Read the audio file, a document without a readable path is read by a channel over its descriptor
+   * instead of a temp copy when the format supports it, the temp copy is still used if the channel read fails.
+   * The descriptor was already probed by getReadFile, so the fallback goes straight to the temp copy
+   */
+  public AudioFile readAudioFile(ReadOptions options) throws Exception {
+    File file = getReadFile();
+    if (file != null) return AudioFileIO.read(file, options);
+    DocumentChannelSource source = getChannelSource();
+    if (source != null) {
+      try {
+        return AudioFileIO.read(new File(getName()), source, options);
+      } catch (Exception e) {
+        if (isInterrupted(e)) throw e;
+        Log.w(Utils.LOG, "channel read failed, read a temp copy: " + e.getMessage());
+      }
+    }
+    return AudioFileIO.read(createTempFile(), options);
+  }
+  public AudioHeader readAudioHeader() throws Exception {
+    File file = getReadFile();
+    if (file != null) return AudioFileIO.readAudioHeader(file);
+    DocumentChannelSource source = getChannelSource();
+    if (source != null) {
+      try {
+        return AudioFileIO.readAudioHeader(new File(getName()), source);
+      } catch (Exception e) {
+        if (isInterrupted(e)) throw e;
+        Log.w(Utils.LOG, "channel read failed, read a temp copy: " + e.getMessage());
+      }
+    }
+    return AudioFileIO.readAudioHeader(createTempFile());
+  }
   public File getTempFile() throws IOException {
     return createTempFile();
   }
   public void closeFile() throws IOException {
+    closeFile(true);
+  }
+  /**
+   * @param isWriteBack false to drop an unchanged temp file of a write instead of writing it back
+   */
+  public void closeFile(boolean isWriteBack) throws IOException {
+    readFile = null;
+    isReadFileCreated = false;
+    // a write changes the size and modified time
+    if (isWrite) {
+      info = null;
+      isInfoLoaded = false;
+      DocumentInfo.remove(path);
+    }
     if (parcelFileDescriptor != null) {
       try {
         parcelFileDescriptor.close();
@@ -91,38 +191,101 @@ public class MediaFile {
     }
     if (tempFile != null) {
       Log.d("MediaFile", "closeFile");
-      if (isWrite) {
-        try (InputStream inputStream = Utils.createInputStream(tempFile);
-             OutputStream outputStream = isDocFile()
-               ? Utils.createOutputStream(context, this.dFile.getUri())
-               : Utils.createOutputStream(this.file)) {
-          byte[] buffer = new byte[1024];
-          int length;
-          while ((length = inputStream.read(buffer)) > 0) {
-            outputStream.write(buffer, 0, length);
-          }
-        }
+      if (isWrite && isWriteBack) {
+        List<long[]> ranges = AudioLayout.getChangedRanges(tempFileLayout, AudioLayout.read(tempFile));
+        if (ranges == null || !writeBackRanges(ranges)) writeBackFile();
       }
       try {
         tempFile.delete();
       } catch (Exception ignored) {}
       tempFile = null;
+      tempFileLayout = null;
     }
   }
+  private void writeBackFile() throws IOException {
+    try (InputStream inputStream = Utils.createInputStream(tempFile);
+         OutputStream outputStream = isDocFile()
+           ? Utils.createOutputStream(context, this.dFile.getUri())
+           : Utils.createOutputStream(this.file)) {
+      byte[] buffer = new byte[1024];
+      int length;
+      while ((length = inputStream.read(buffer)) > 0) {
+        outputStream.write(buffer, 0, length);
+      }
+    }
+  }
+  /**
+   * Write only the changed ranges of the temp file over the original file
+   * @return false if the original file can not be opened in "rw" mode, nothing was written then
+   */
+  private boolean writeBackRanges(List<long[]> ranges) throws IOException {
+    ParcelFileDescriptor descriptor = null;
+    FileChannel target;
+    try {
+      if (isDocFile()) {
+        descriptor = context.getContentResolver().openFileDescriptor(dFile.getUri(), "rw");
+        if (descriptor == null) return false;
+        target = new FileOutputStream(descriptor.getFileDescriptor()).getChannel();
+      } else target = new RandomAccessFile(file, "rw").getChannel();
+    } catch (Exception e) {
+      if (descriptor != null) descriptor.close();
+      return false;
+    }
+    Log.d("MediaFile", "write back " + ranges.size() + " ranges");
+    try (FileChannel source = new FileInputStream(tempFile).getChannel()) {
+      for (long[] range : ranges) {
+        long position = range[0];
+        while (position < range[1]) {
+          target.position(position);
+          long count = source.transferTo(position, range[1] - position, target);
+          if (count <= 0) throw new IOException("Write back failed");
+          position += count;
+        }
+      }
+    } finally {
+      target.close();
+      if (descriptor != null) descriptor.close();
+    }
+    return true;
+  }
+
+  private DocumentInfo getInfo() {
+    if (!isInfoLoaded) {
+      isInfoLoaded = true;
+      info = DocumentInfo.get(context, path, dFile.getUri());
+    }
+    return info;
+  }
+
+  /**
+   * Take the info of a recent query instead of querying the provider, for the synchronous lookups of the JS thread
+   * @return false if the document has no recent info, size and lastModified would query it
+   */
+  public boolean useCachedInfo() {
+    if (!isDocFile() || isInfoLoaded) return true;
+    info = DocumentInfo.getCached(path);
+    isInfoLoaded = info != null;
+    return isInfoLoaded;
+  }
 
   public boolean exists() {
     return isDocFile()
-      ? this.dFile.exists()
+      ? getInfo() != null
       : this.file.exists();
   }
   public String getName() {
-    return isDocFile()
-      ? this.dFile.getName()
-      : this.file.getName();
+    if (!isDocFile()) return this.file.getName();
+    DocumentInfo info = getInfo();
+    return info == null ? null : info.name;
   }
   public long size() {
-    return isDocFile()
-      ? this.dFile.length()
-      : this.file.length();
+    if (!isDocFile()) return this.file.length();
+    DocumentInfo info = getInfo();
+    return info == null ? 0 : info.size;
+  }
+  public long lastModified() {
+    if (!isDocFile()) return this.file.lastModified();
+    DocumentInfo info = getInfo();
+    return info == null ? 0 : info.lastModified;
   }
 }
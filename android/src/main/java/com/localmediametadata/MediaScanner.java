@@ -0,0 +1,354 @@
+package com.localmediametadata;
+
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Walk a directory or a `content://` tree in parallel and stream the found audio files back
+ * in chunks by the {@link #EVENT_NAME} event, optionally with their metadata.
+ * The incremental scan only sends the files added, modified or removed since the last incremental scan.
+ */
+public class MediaScanner {
+  public static final String EVENT_NAME = "LocalMediaMetadata_scanFiles";
+  private static final int DEFAULT_CHUNK_SIZE = 100;
+  private static final int METADATA_TASK_SIZE = 16;
+  private static final ConcurrentHashMap<String, MediaScanner> tasks = new ConcurrentHashMap<>();
+
+  public static class Options {
+    List<String> extNames = new ArrayList<>();
+    boolean isCheckMagic = false;
+    boolean isReadMetadata = false;
+    boolean isRecursive = true;
+    boolean isIncremental = false;
+    int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    String getJournalKey(String dirPath) {
+      ArrayList<String> names = new ArrayList<>(extNames);
+      Collections.sort(names);
+      return dirPath + "|" + names + "|" + isCheckMagic + "|" + isRecursive;
+    }
+  }
+
+  private final ReactApplicationContext context;
+  private final String requestId;
+  private final String dirPath;
+  private final Options options;
+  private final Utils.MediaFileFilter filter;
+  private final ChunkEmitter emitter;
+  private final Promise promise;
+  private final AtomicInteger pendingTasks = new AtomicInteger(0);
+  private final AtomicInteger fileCount = new AtomicInteger(0);
+  private final AtomicInteger dirCount = new AtomicInteger(0);
+  private final AtomicInteger addedCount = new AtomicInteger(0);
+  private final AtomicInteger modifiedCount = new AtomicInteger(0);
+  private final AtomicInteger removedCount = new AtomicInteger(0);
+  private final AtomicInteger unchangedCount = new AtomicInteger(0);
+  private final ScanJournal journal;
+  private Executor executor;
+  private volatile boolean isCanceled = false;
+  // a directory could not be listed or a task failed, so the directories not visited are not known to be removed
+  private volatile boolean isIncomplete = false;
+
+  private MediaScanner(ReactApplicationContext context, String requestId, String dirPath, Options options, Promise promise) {
+    this.context = context;
+    this.requestId = requestId;
+    this.dirPath = dirPath;
+    this.options = options;
+    this.filter = new Utils.MediaFileFilter(options.extNames);
+    this.emitter = new ChunkEmitter(context, EVENT_NAME, requestId, options.chunkSize > 0 ? options.chunkSize : DEFAULT_CHUNK_SIZE);
+    this.promise = promise;
+    this.journal = options.isIncremental ? new ScanJournal(context, options.getJournalKey(dirPath)) : null;
+  }
+
+  public static void start(ReactApplicationContext context, String requestId, String dirPath, Options options, Promise promise) {
+    MediaScanner scanner = new MediaScanner(context, requestId, dirPath, options, promise);
+    if (tasks.putIfAbsent(requestId, scanner) != null) {
+      promise.reject("-1", "Request id already exists: " + requestId);
+      return;
+    }
+    scanner.run();
+  }
+  public static boolean cancel(String requestId) {
+    MediaScanner scanner = tasks.get(requestId);
+    if (scanner == null) return false;
+    scanner.isCanceled = true;
+    return true;
+  }
+
+  private void run() {
+    executor = AsyncTask.getExecutor(AsyncTask.getReadLane(dirPath));
+    if (Utils.isContentUri(dirPath)) {
+      Uri treeUri;
+      String rootId;
+      DocumentInfo rootInfo;
+      try {
+        Uri uri = Uri.parse(dirPath);
+        if (!Utils.isTreeUri(uri)) throw new Exception("Not a tree uri");
+        treeUri = DocumentsContract.buildTreeDocumentUri(uri.getAuthority(), DocumentsContract.getTreeDocumentId(uri));
+        // a document uri in the tree scans that directory, the same as DocumentFile.fromTreeUri
+        rootId = DocumentsContract.isDocumentUri(context, uri) ? DocumentsContract.getDocumentId(uri) : DocumentsContract.getTreeDocumentId(uri);
+        rootInfo = DocumentInfo.get(context, dirPath, DocumentsContract.buildDocumentUriUsingTree(treeUri, rootId));
+      } catch (Exception e) {
+        treeUri = null;
+        rootId = null;
+        rootInfo = null;
+      }
+      if (rootInfo == null || !rootInfo.isDirectory()) {
+        reject("Directory does not exist");
+        return;
+      }
+      Uri rootTreeUri = treeUri;
+      String rootDirId = rootId;
+      submit(() -> scanTree(rootTreeUri, rootDirId));
+    } else {
+      File dir = Utils.parsePathToFile(dirPath);
+      if (!dir.isDirectory()) {
+        reject("Directory does not exist");
+        return;
+      }
+      submit(() -> scanDir(dir));
+    }
+  }
+
+  private void submit(Runnable task) {
+    pendingTasks.incrementAndGet();
+    // the scan is queued behind the reads of the visible rows
+    executor.execute(AsyncTask.withPriority(AsyncTask.Priority.BACKGROUND, () -> {
+      try {
+        if (!isCanceled) task.run();
+      } catch (Exception e) {
+        Log.e("ScanFiles", "Scan error: " + e.getMessage());
+        isIncomplete = true;
+      } finally {
+        if (pendingTasks.decrementAndGet() == 0) finish();
+      }
+    }));
+  }
+
+  /**
+   * A child of the scanned directory
+   */
+  private abstract static class ScanEntry {
+    abstract String getPath();
+    abstract String getName();
+    abstract boolean isDirectory();
+    abstract long size();
+    abstract long lastModified();
+    // null for a plain file
+    abstract String getMimeType();
+    abstract InputStream openInputStream() throws Exception;
+    abstract void scan();
+  }
+  private class FileEntry extends ScanEntry {
+    private final File file;
+    FileEntry(File file) {
+      this.file = file;
+    }
+    @Override String getPath() { return file.getAbsolutePath(); }
+    @Override String getName() { return file.getName(); }
+    @Override boolean isDirectory() { return file.isDirectory(); }
+    @Override long size() { return file.length(); }
+    @Override long lastModified() { return file.lastModified(); }
+    @Override String getMimeType() { return null; }
+    @Override InputStream openInputStream() throws Exception { return Utils.createInputStream(file); }
+    @Override void scan() { scanDir(file); }
+  }
+  /**
+   * A child of a tree directory, all its fields come from the listing query of the directory
+   */
+  private class DocumentEntry extends ScanEntry {
+    private final Uri treeUri;
+    private final DocumentInfo info;
+    private final Uri uri;
+    DocumentEntry(Uri treeUri, DocumentInfo info) {
+      this.treeUri = treeUri;
+      this.info = info;
+      this.uri = DocumentsContract.buildDocumentUriUsingTree(treeUri, info.documentId);
+    }
+    @Override String getPath() { return uri.toString(); }
+    @Override String getName() { return info.name; }
+    @Override boolean isDirectory() { return info.isDirectory(); }
+    @Override long size() { return info.size; }
+    @Override long lastModified() { return info.lastModified; }
+    @Override String getMimeType() { return info.mimeType; }
+    @Override InputStream openInputStream() throws Exception { return Utils.createInputStream(context, uri); }
+    @Override void scan() { scanTree(treeUri, info.documentId); }
+  }
+
+  private boolean accept(ScanEntry entry) {
+    String name = entry.getName();
+    if (name == null) return false;
+    if (filter.accept(name)) return true;
+    if (!options.isCheckMagic) return false;
+    try (InputStream inputStream = entry.openInputStream()) {
+      return inputStream != null && Utils.isAudioFileHeader(inputStream);
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  private static WritableMap createItem(String path, String name, long size, long lastModified, String mimeType) {
+    WritableMap item = Arguments.createMap();
+    item.putString("path", path);
+    item.putString("name", name);
+    item.putDouble("size", size);
+    item.putDouble("lastModified", lastModified);
+    item.putString("mimeType", mimeType);
+    return item;
+  }
+
+  private void scanDir(File dir) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      isIncomplete = true;
+      return;
+    }
+    ArrayList<ScanEntry> entries = new ArrayList<>(files.length);
+    for (File file : files) entries.add(new FileEntry(file));
+    handleDir(dir.getAbsolutePath(), entries);
+  }
+
+  /**
+   * List the directory by one query with all the fields, DocumentFile.listFiles only reads the ids
+   * and would query every child again for its name, type, size and modified time
+   */
+  private void scanTree(Uri treeUri, String dirId) {
+    List<DocumentInfo> children = DocumentInfo.listChildren(context, treeUri, dirId);
+    if (children == null) {
+      isIncomplete = true;
+      return;
+    }
+    ArrayList<ScanEntry> entries = new ArrayList<>(children.size());
+    for (DocumentInfo child : children) {
+      if (child.documentId != null) entries.add(new DocumentEntry(treeUri, child));
+    }
+    handleDir(DocumentsContract.buildDocumentUriUsingTree(treeUri, dirId).toString(), entries);
+  }
+
+  private static long fingerprint(List<ScanEntry> entries) {
+    ArrayList<String> names = new ArrayList<>(entries.size());
+    for (ScanEntry entry : entries) names.add(entry.isDirectory() ? entry.getName() + "/" : entry.getName());
+    Collections.sort(names);
+    return ScanJournal.fingerprint(names);
+  }
+
+  private void handleDir(String dirPath, List<ScanEntry> entries) {
+    dirCount.incrementAndGet();
+    ScanJournal.DirRecord lastDir = null;
+    long fingerprint = 0;
+    if (journal != null) {
+      lastDir = journal.getLastDir(dirPath);
+      fingerprint = fingerprint(entries);
+    }
+    // the names are unchanged, so the audio files of the last scan can be reused without matching the names or headers again
+    boolean isListingUnchanged = lastDir != null && lastDir.fingerprint == fingerprint;
+    HashMap<String, ScanJournal.FileRecord> records = new HashMap<>();
+    ArrayList<WritableMap> items = new ArrayList<>();
+    for (ScanEntry entry : entries) {
+      if (isCanceled) return;
+      if (entry.isDirectory()) {
+        if (options.isRecursive) submit(entry::scan);
+        continue;
+      }
+      String path = entry.getPath();
+      if (isListingUnchanged) {
+        if (!lastDir.files.containsKey(path)) continue;
+      } else if (!accept(entry)) continue;
+      long size = entry.size();
+      long lastModified = entry.lastModified();
+      WritableMap item = createItem(path, entry.getName(), size, lastModified, entry.getMimeType());
+      if (journal != null) {
+        records.put(path, new ScanJournal.FileRecord(size, lastModified));
+        ScanJournal.FileRecord lastFile = lastDir == null ? null : lastDir.files.get(path);
+        if (lastFile == null) {
+          addedCount.incrementAndGet();
+          item.putString("status", "added");
+        } else if (lastFile.size != size || lastFile.lastModified != lastModified) {
+          modifiedCount.incrementAndGet();
+          item.putString("status", "modified");
+        } else {
+          unchangedCount.incrementAndGet();
+          continue;
+        }
+      }
+      items.add(item);
+    }
+    if (journal != null) journal.putDir(dirPath, new ScanJournal.DirRecord(fingerprint, records));
+    addItems(items);
+  }
+
+  private void addItems(List<WritableMap> items) {
+    if (items.isEmpty()) return;
+    fileCount.addAndGet(items.size());
+    if (!options.isReadMetadata) {
+      for (WritableMap item : items) emitter.add(item);
+      return;
+    }
+    for (int i = 0; i < items.size(); i += METADATA_TASK_SIZE) {
+      List<WritableMap> taskItems = items.subList(i, Math.min(i + METADATA_TASK_SIZE, items.size()));
+      submit(() -> {
+        for (WritableMap item : taskItems) {
+          if (isCanceled) return;
+          String path = item.getString("path");
+          try {
+            item.putMap("metadata", Metadata.readMetadata(context, path));
+          } catch (Exception e) {
+            Log.e("ScanFiles", "Read Metadata Error: " + path);
+            item.putNull("metadata");
+          }
+          emitter.add(item);
+        }
+      });
+    }
+  }
+
+  private void reject(String message) {
+    tasks.remove(requestId);
+    promise.reject("-1", message);
+  }
+
+  private void finish() {
+    tasks.remove(requestId);
+    // a canceled scan did not visit every dir, so neither the removed files nor the new state are known
+    if (journal != null && !isCanceled) {
+      if (isIncomplete) journal.keepUnvisitedDirs();
+      for (String path : journal.collectRemovedFiles()) {
+        WritableMap item = Arguments.createMap();
+        item.putString("path", path);
+        item.putString("status", "removed");
+        removedCount.incrementAndGet();
+        emitter.add(item);
+      }
+      journal.save();
+    }
+    emitter.flush(true);
+    WritableMap result = Arguments.createMap();
+    result.putString("requestId", requestId);
+    result.putInt("files", fileCount.get());
+    result.putInt("dirs", dirCount.get());
+    if (journal != null) {
+      result.putInt("added", addedCount.get());
+      result.putInt("modified", modifiedCount.get());
+      result.putInt("removed", removedCount.get());
+      result.putInt("unchanged", unchangedCount.get());
+    }
+    result.putBoolean("canceled", isCanceled);
+    promise.resolve(result);
+  }
+}
@@ -0,0 +1,125 @@
+package com.localmediametadata;
+
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.MediaStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The metadata MediaStore already holds for the `content://media/...` uris, read for many files by one query
+ * instead of parsing every file. The values are the ones of the MediaStore scan: the type is the MIME type and
+ * the bitrate is derived from the size and duration before Android 11, so they are not the exact values of the parser.
+ */
+class MediaStoreMetadata {
+  // below the SQLite limit of the bound arguments
+  static final int MAX_QUERY_SIZE = 500;
+  // the value of the missing tags on the old versions
+  private static final String UNKNOWN = "<unknown>";
+
+  private static String[] getProjection() {
+    ArrayList<String> projection = new ArrayList<>(Arrays.asList(
+      MediaStore.Audio.Media._ID,
+      MediaStore.Audio.Media.TITLE,
+      MediaStore.Audio.Media.ARTIST,
+      MediaStore.Audio.Media.ALBUM,
+      MediaStore.Audio.Media.DURATION,
+      MediaStore.Audio.Media.SIZE,
+      MediaStore.Audio.Media.DISPLAY_NAME,
+      MediaStore.Audio.Media.MIME_TYPE));
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) projection.add(MediaStore.Audio.Media.BITRATE);
+    return projection.toArray(new String[0]);
+  }
+
+  static boolean isMediaStoreUri(String path) {
+    if (!Utils.isContentUri(path)) return false;
+    try {
+      return MediaStore.AUTHORITY.equals(Uri.parse(path).getAuthority());
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  private static String getString(Cursor cursor, String column) {
+    int index = cursor.getColumnIndex(column);
+    String value = index < 0 || cursor.isNull(index) ? "" : cursor.getString(index);
+    return UNKNOWN.equals(value) ? "" : value;
+  }
+  private static long getLong(Cursor cursor, String column) {
+    int index = cursor.getColumnIndex(column);
+    return index < 0 || cursor.isNull(index) ? 0 : cursor.getLong(index);
+  }
+
+  /**
+   * @return null if MediaStore has not scanned the duration or size of the file yet, it has to be parsed then
+   */
+  private static MetadataIndex.Entry createEntry(Cursor cursor) {
+    long duration = getLong(cursor, MediaStore.Audio.Media.DURATION);
+    long size = getLong(cursor, MediaStore.Audio.Media.SIZE);
+    if (duration <= 0 || size <= 0) return null;
+    String fileName = getString(cursor, MediaStore.Audio.Media.DISPLAY_NAME);
+    String name = getString(cursor, MediaStore.Audio.Media.TITLE);
+    if ("".equals(name)) name = Utils.getName(fileName);
+    long bitrate = getLong(cursor, MediaStore.Audio.Media.BITRATE);
+    if (bitrate <= 0) bitrate = size * 8 * 1000 / duration;
+    return new MetadataIndex.Entry(size, 0,
+      name,
+      getString(cursor, MediaStore.Audio.Media.ARTIST),
+      getString(cursor, MediaStore.Audio.Media.ALBUM),
+      Math.round(duration / 1000.0),
+      String.valueOf(bitrate / 1000),
+      getString(cursor, MediaStore.Audio.Media.MIME_TYPE),
+      Utils.getFileExtension(fileName));
+  }
+
+  /**
+   * Query the MediaStore uris of the paths, one query for every collection and {@link #MAX_QUERY_SIZE} ids
+   * @return path -> metadata, the other paths are not in MediaStore or have to be parsed
+   */
+  static Map<String, MetadataIndex.Entry> query(Context context, List<String> paths) {
+    // collection uri -> id -> path
+    HashMap<String, HashMap<String, String>> groups = new HashMap<>();
+    for (String path : paths) {
+      if (!isMediaStoreUri(path)) continue;
+      try {
+        long id = ContentUris.parseId(Uri.parse(path));
+        if (id < 0) continue;
+        String collection = path.substring(0, path.lastIndexOf('/'));
+        HashMap<String, String> group = groups.get(collection);
+        if (group == null) {
+          group = new HashMap<>();
+          groups.put(collection, group);
+        }
+        group.put(String.valueOf(id), path);
+      } catch (Exception ignored) {}
+    }
+    HashMap<String, MetadataIndex.Entry> entries = new HashMap<>();
+    String[] projection = getProjection();
+    for (Map.Entry<String, HashMap<String, String>> group : groups.entrySet()) {
+      Uri collectionUri = Uri.parse(group.getKey());
+      List<String> ids = new ArrayList<>(group.getValue().keySet());
+      for (int i = 0; i < ids.size(); i += MAX_QUERY_SIZE) {
+        List<String> queryIds = ids.subList(i, Math.min(i + MAX_QUERY_SIZE, ids.size()));
+        StringBuilder selection = new StringBuilder(MediaStore.Audio.Media._ID + " IN (");
+        for (int j = 0; j < queryIds.size(); j++) selection.append(j == 0 ? "?" : ",?");
+        selection.append(')');
+        try (Cursor cursor = context.getContentResolver().query(collectionUri, projection, selection.toString(), queryIds.toArray(new String[0]), null)) {
+          if (cursor == null) continue;
+          while (cursor.moveToNext()) {
+            String path = group.getValue().get(getString(cursor, MediaStore.Audio.Media._ID));
+            MetadataIndex.Entry entry = path == null ? null : createEntry(cursor);
+            if (entry != null) entries.put(path, entry);
+          }
+        } catch (Exception ignored) {}
+      }
+    }
+    return entries;
+  }
+}
@@ -6,89 +6,137 @@ import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.WritableMap;
 
+import org.jaudiotagger.audio.ArtworkLocator;
 import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
 import org.jaudiotagger.audio.AudioHeader;
+import org.jaudiotagger.audio.ReadOptions;
 import org.jaudiotagger.tag.FieldKey;
 import org.jaudiotagger.tag.Tag;
 import org.jaudiotagger.tag.TagField;
-import org.jaudiotagger.tag.flac.FlacTag;
 import org.jaudiotagger.tag.id3.valuepair.ImageFormats;
 import org.jaudiotagger.tag.images.Artwork;
-import org.jaudiotagger.tag.images.ArtworkFactory;
+import org.jaudiotagger.tag.reference.PictureTypes;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.List;
 
 public class Metadata {
-  private static WritableMap buildMetadata(MediaFile file, AudioHeader audioHeader, Tag tag) {
-    WritableMap params = Arguments.createMap();
+  private static MetadataIndex.Entry buildMetadata(MediaFile file, long size, long lastModified, AudioHeader audioHeader, Tag tag) {
     String name = tag.getFirst(FieldKey.TITLE);
     if ("".equals(name)) name = Utils.getName(file.getName());
-    params.putString("name", name);
-    params.putString("singer", tag.getFirst(FieldKey.ARTIST).replaceAll("\\u0000", "、"));
-    params.putString("albumName", tag.getFirst(FieldKey.ALBUM));
-    params.putDouble("interval", audioHeader.getTrackLength());
-    params.putString("bitrate", audioHeader.getBitRate());
-    params.putString("type", audioHeader.getEncodingType());
-    params.putString("ext", Utils.getFileExtension(file.getName()));
-    params.putDouble("size", file.size());
-
-    return params;
+    return new MetadataIndex.Entry(size, lastModified,
+      name,
+      tag.getFirst(FieldKey.ARTIST).replaceAll("\\u0000", "、"),
+      tag.getFirst(FieldKey.ALBUM),
+      audioHeader.getTrackLength(),
+      audioHeader.getBitRate(),
+      audioHeader.getEncodingType(),
+      Utils.getFileExtension(file.getName()));
   }
 
   static public WritableMap readMetadata(ReactApplicationContext context, String filePath) throws Exception {
     MediaFile mediaFile = new MediaFile(context, filePath);
+    MetadataIndex index = MetadataIndex.getInstance(context);
+    long size = mediaFile.size();
+    long lastModified = mediaFile.lastModified();
+    // the index entry can not be validated without the modified time
+    boolean isIndexable = lastModified > 0;
+    if (isIndexable) {
+      MetadataIndex.Entry entry = index.get(filePath, size, lastModified);
+      if (entry != null) return entry.toWritableMap();
+    }
     try {
-      File file = mediaFile.getFile(false);
-      AudioFile audioFile = AudioFileIO.read(file);
-      return buildMetadata(mediaFile, audioFile.getAudioHeader(), audioFile.getTagOrCreateDefault());
+      AudioFile audioFile = AudioFileCache.read(mediaFile, filePath, size, lastModified, new ReadOptions(ReadOptions.FIELD_NONE));
+      MetadataIndex.Entry entry = buildMetadata(mediaFile, size, lastModified, audioFile.getAudioHeader(), audioFile.getTagOrCreateDefault());
+      if (isIndexable) index.put(filePath, entry);
+      return entry.toWritableMap();
     } finally {
       mediaFile.closeFile();
     }
   }
 
-  static public void writeMetadata(File file, Bundle metadata, boolean isOverwrite) throws Exception {
-    AudioFile audioFile = AudioFileIO.read(file);
-    Tag tag;
-    if (isOverwrite) {
-      tag = audioFile.createDefaultTag();
-      audioFile.setTag(tag);
-    } else tag = audioFile.getTagOrCreateAndSetDefault();
-    tag.setField(FieldKey.TITLE, metadata.getString("name", ""));
-    tag.setField(FieldKey.ARTIST, metadata.getString("singer", ""));
-    tag.setField(FieldKey.ALBUM, metadata.getString("albumName", ""));
-    audioFile.commit();
+  /**
+   * The metadata of the index without reading the file, null if the file was not read before or has changed
+   */
+  static public WritableMap getCachedMetadata(ReactApplicationContext context, String filePath) {
+    MediaFile mediaFile = new MediaFile(context, filePath);
+    if (!mediaFile.useCachedInfo()) return null;
+    long lastModified = mediaFile.lastModified();
+    if (lastModified <= 0) return null;
+    MetadataIndex.Entry entry = MetadataIndex.getInstance(context).getIfLoaded(filePath, mediaFile.size(), lastModified);
+    return entry == null ? null : entry.toWritableMap();
   }
-  static public void writeMetadata(ReactApplicationContext context, String filePath, Bundle metadata, boolean isOverwrite) throws Exception {
+
+  static public WritableMap readAudioInfo(ReactApplicationContext context, String filePath) throws Exception {
     MediaFile mediaFile = new MediaFile(context, filePath);
+    long size = mediaFile.size();
+    long lastModified = mediaFile.lastModified();
+    MetadataIndex.Entry entry = lastModified > 0 ? MetadataIndex.getInstance(context).get(filePath, size, lastModified) : null;
+    if (entry != null) return buildAudioInfo(entry.interval, entry.bitrate, entry.type, entry.ext, size);
     try {
-      try {
-        File file = mediaFile.getFile(true);
-        writeMetadata(file, metadata, isOverwrite);
-      } catch (Exception e) {
-        mediaFile.closeFile();
-        writeMetadata(mediaFile.getTempFile(), metadata, isOverwrite);
-      }
+      AudioHeader audioHeader = mediaFile.readAudioHeader();
+      return buildAudioInfo(audioHeader.getTrackLength(), audioHeader.getBitRate(), audioHeader.getEncodingType(),
+        Utils.getFileExtension(mediaFile.getName()), size);
     } finally {
       mediaFile.closeFile();
     }
   }
+  private static WritableMap buildAudioInfo(double interval, String bitrate, String type, String ext, long size) {
+    WritableMap params = Arguments.createMap();
+    params.putDouble("interval", interval);
+    params.putString("bitrate", bitrate);
+    params.putString("type", type);
+    params.putString("ext", ext);
+    params.putDouble("size", size);
+    return params;
+  }
+
+  private static void setMetadataFields(Tag tag, Bundle metadata) throws Exception {
+    tag.setField(FieldKey.TITLE, metadata.getString("name", ""));
+    tag.setField(FieldKey.ARTIST, metadata.getString("singer", ""));
+    tag.setField(FieldKey.ALBUM, metadata.getString("albumName", ""));
+  }
 
+  private static String getPicExt(String mimeType) {
+    String format = ImageFormats.getFormatForMimeType(mimeType);
+    return format == null ? "jpg" : format.toLowerCase();
+  }
+  /**
+   * The front cover, or the first picture if there is no front cover, the same rule as ArtworkLocator
+   */
+  private static Artwork getCoverArtwork(Tag tag) {
+    List<Artwork> artworks = tag.getArtworkList();
+    for (Artwork artwork : artworks) {
+      if (artwork.getPictureType() == PictureTypes.DEFAULT_ID) return artwork;
+    }
+    return artworks.isEmpty() ? null : artworks.get(0);
+  }
   public static String readPic(ReactApplicationContext context, String filePath, String picDir) throws Exception {
     MediaFile mediaFile = new MediaFile(context, filePath);
     try {
-      File file = mediaFile.getFile(false);
-      AudioFile audioFile = AudioFileIO.read(file);
-      Artwork artwork = audioFile.getTagOrCreateDefault().getFirstArtwork();
+      File file = mediaFile.getReadFile();
+      File dir = new File(picDir);
+      // copy the picture straight from the file when it is stored as is
+      ArtworkLocator.Location location = file == null ? null : ArtworkLocator.locate(file);
+      if (location != null) {
+        if (!dir.exists() && !dir.mkdirs()) throw new Exception("Directory does not exist");
+        File picFile = new File(picDir, Utils.getName(mediaFile.getName()) + "." + getPicExt(location.getMimeType()));
+        ArtworkLocator.transferTo(file, location, picFile);
+        return picFile.getPath();
+      }
+
+      AudioFile audioFile = AudioFileCache.read(mediaFile, filePath, mediaFile.size(), mediaFile.lastModified(), new ReadOptions(ReadOptions.FIELD_ARTWORK));
+      Artwork artwork = getCoverArtwork(audioFile.getTagOrCreateDefault());
       if (artwork == null) return "";
       if (artwork.isLinked()) return artwork.getImageUrl();
 
-      File dir = new File(picDir);
       if (!dir.exists() && !dir.mkdirs()) throw new Exception("Directory does not exist");
-      File picFile = new File(picDir, Utils.getName(file.getName()) + "." + ImageFormats.getFormatForMimeType(artwork.getMimeType()).toLowerCase());
+      File picFile = new File(picDir, Utils.getName(mediaFile.getName()) + "." + getPicExt(artwork.getMimeType()));
       try (FileOutputStream fos = new FileOutputStream(picFile)) {
         fos.write(artwork.getBinaryData());
       }
@@ -98,64 +146,17 @@ public class Metadata {
     }
   }
 
-  public static void writeFlacPic(AudioFile audioFile, Artwork artwork) throws Exception {
-    FlacTag tag = (FlacTag) audioFile.getTagOrCreateAndSetDefault();
-    TagField tagField = tag.createArtworkField(artwork.getBinaryData(),
-      artwork.getPictureType(),
-      artwork.getMimeType(),
-      artwork.getDescription(),
-      artwork.getWidth(),
-      artwork.getHeight(),
-      0,
-      "image/jpeg".equals(artwork.getMimeType()) ? 24 : 32
-    );
-    tag.setField(tagField);
-    try {
-      audioFile.commit();
-    } catch (Exception e) {
-      if (e.getMessage().contains("permissions")) {
-        tag.deleteArtworkField();
-        audioFile.commit();
-        tag.setField(tagField);
-        audioFile.commit();
-      } else throw e;
-    }
-  }
-  private static void writePic(File file, String picPath) throws Exception {
-    AudioFile audioFile = AudioFileIO.read(file);
-    if ("".equals(picPath)) {
-      audioFile.getTagOrCreateAndSetDefault().deleteArtworkField();
-      audioFile.commit();
-      return;
-    }
-    Artwork artwork = ArtworkFactory.createArtworkFromFile(new File(picPath));
-    if ("flac".equalsIgnoreCase(Utils.getFileExtension(file.getName()))) {
-      writeFlacPic(audioFile, artwork);
-    } else {
-      Tag tag = audioFile.getTagOrCreateAndSetDefault();
-      tag.setField(artwork);
-      try {
-        audioFile.commit();
-      } catch (Exception e) {
-        if (e.getMessage().contains("permissions")) {
-          tag.deleteArtworkField();
-          audioFile.commit();
-          tag.setField(artwork);
-          audioFile.commit();
-        } else throw e;
-      }
-    }
-  }
-  public static void writePic(ReactApplicationContext context, String filePath, String picPath) throws Exception {
+  public static String readPicThumbnail(ReactApplicationContext context, String filePath, int maxSize) throws Exception {
+    ThumbnailCache cache = ThumbnailCache.getInstance(context);
     MediaFile mediaFile = new MediaFile(context, filePath);
+    String key = ThumbnailCache.createKey(mediaFile, filePath, maxSize);
+    String thumbnailPath = cache.get(key);
+    if (thumbnailPath != null) return thumbnailPath;
     try {
-      try {
-        File file = mediaFile.getFile(true);
-        writePic(file, picPath);
-      } catch (Exception e) {
-        mediaFile.closeFile();
-        writePic(mediaFile.getTempFile(), picPath);
-      }
+      AudioFile audioFile = AudioFileCache.read(mediaFile, filePath, mediaFile.size(), mediaFile.lastModified(), new ReadOptions(ReadOptions.FIELD_ARTWORK));
+      Artwork artwork = getCoverArtwork(audioFile.getTagOrCreateDefault());
+      if (artwork != null && artwork.isLinked()) return artwork.getImageUrl();
+      return cache.put(key, artwork == null ? null : artwork.getBinaryData(), maxSize);
     } finally {
       mediaFile.closeFile();
     }
@@ -177,17 +178,27 @@ public class Metadata {
       return "";
     }
   }
+  private static String readLrcFile(ReactApplicationContext context, String filePath) throws Exception {
+    String lrcPath = LyricSidecarIndex.find(context, filePath);
+    if ("".equals(lrcPath)) return "";
+    // the directory can not be listed, try the sibling path
+    if (lrcPath == null) lrcPath = filePath.substring(0, filePath.lastIndexOf(".")) + ".lrc";
+    MediaFile lrcMediaFile = new MediaFile(context, lrcPath);
+    try {
+      return lrcMediaFile.exists() ? readLyricFile(lrcMediaFile.getFile(false)) : "";
+    } finally {
+      lrcMediaFile.closeFile();
+    }
+  }
   public static String readLyric(ReactApplicationContext context, String filePath, boolean isReadLrcFile) throws Exception {
     MediaFile mediaFile = new MediaFile(context, filePath);
-    MediaFile lrcMediaFile = isReadLrcFile ? new MediaFile(context, filePath.substring(0, filePath.lastIndexOf(".")) + ".lrc") : null;
     try {
-      File file = mediaFile.getFile(false);
-      if (isReadLrcFile && lrcMediaFile.exists()) {
-        String lrc = readLyricFile(lrcMediaFile.getFile(false));
+      if (isReadLrcFile) {
+        String lrc = readLrcFile(context, filePath);
         if (!"".equals(lrc)) return lrc;
       }
 
-      org.jaudiotagger.audio.AudioFile audioFile = AudioFileIO.read(file);
+      AudioFile audioFile = AudioFileCache.read(mediaFile, filePath, mediaFile.size(), mediaFile.lastModified(), new ReadOptions(ReadOptions.FIELD_LYRICS));
       Tag tag = audioFile.getTagOrCreateDefault();
       return tag.getFirst(FieldKey.LYRICS);
     } finally {
@@ -195,39 +206,103 @@ public class Metadata {
     }
   }
 
-  public static void writeLyric(File file, String lyric) throws Exception {
+  private static boolean isFieldUnchanged(Tag tag, FieldKey key, String value) {
+    try {
+      List<String> values = tag.getAll(key);
+      if (values.isEmpty()) return "".equals(value);
+      return values.size() == 1 && values.get(0).equals(value);
+    } catch (Exception e) {
+      return false;
+    }
+  }
+  private static boolean isArtworkUnchanged(Tag tag, Artwork artwork) {
+    List<Artwork> artworks = tag.getArtworkList();
+    if (artworks.size() != 1) return false;
+    Artwork current = artworks.get(0);
+    if (current.isLinked()) return false;
+    // some formats do not store the picture type
+    if (current.getPictureType() >= 0 && current.getPictureType() != artwork.getPictureType()) return false;
+    return Arrays.equals(current.getBinaryData(), artwork.getBinaryData());
+  }
+  /**
+   * Whether the tag already has the requested values, an empty value equals a missing field
+   */
+  private static boolean isTagUnchanged(Tag tag, Bundle metadata, String lyric, String picPath, Artwork artwork) {
+    if (tag == null) return metadata == null && (lyric == null || "".equals(lyric)) && (picPath == null || "".equals(picPath));
+    if (metadata != null && !(isFieldUnchanged(tag, FieldKey.TITLE, metadata.getString("name", ""))
+      && isFieldUnchanged(tag, FieldKey.ARTIST, metadata.getString("singer", ""))
+      && isFieldUnchanged(tag, FieldKey.ALBUM, metadata.getString("albumName", "")))) return false;
+    if (lyric != null && !isFieldUnchanged(tag, FieldKey.LYRICS, lyric)) return false;
+    if ("".equals(picPath)) return tag.getArtworkList().isEmpty();
+    return artwork == null || isArtworkUnchanged(tag, artwork);
+  }
+
+  /**
+   * Apply the metadata, lyric and picture changes to one tag and commit once,
+   * a missing key leaves that part of the tag unchanged.
+   * The commit is skipped if the tag already has the requested values, an overwrite is always committed
+   * @return false if the file was not written
+   */
+  static public boolean writeTags(File file, Bundle options) throws Exception {
     AudioFile audioFile = AudioFileIO.read(file);
-    Tag tag = audioFile.getTagOrCreateAndSetDefault();
-    if ("".equals(lyric)) {
-      tag.deleteField(FieldKey.LYRICS);
-      audioFile.commit();
-      return;
+    boolean isOverwrite = options.getBoolean("isOverwrite", false);
+    Bundle metadata = options.getBundle("metadata");
+    String lyric = options.getString("lyric");
+    String picPath = options.getString("picPath");
+    PreparedArtwork artwork = picPath == null || "".equals(picPath) ? null : PreparedArtwork.get(picPath);
+    if (!isOverwrite && isTagUnchanged(audioFile.getTag(), metadata, lyric, picPath, artwork == null ? null : artwork.artwork)) return false;
+
+    Tag tag;
+    if (isOverwrite) {
+      tag = audioFile.createDefaultTag();
+      audioFile.setTag(tag);
+    } else tag = audioFile.getTagOrCreateAndSetDefault();
+
+    if (metadata != null) setMetadataFields(tag, metadata);
+
+    if ("".equals(lyric)) tag.deleteField(FieldKey.LYRICS);
+    else if (lyric != null) tag.setField(FieldKey.LYRICS, lyric);
+
+    TagField picField = null;
+    if ("".equals(picPath)) tag.deleteArtworkField();
+    else if (artwork != null) {
+      picField = artwork.createField(tag);
+      tag.setField(picField);
     }
-    tag.setField(FieldKey.LYRICS, lyric);
+
     try {
       audioFile.commit();
     } catch (Exception e) {
-      if (e.getMessage().contains("permissions")) {
-        tag.deleteField(FieldKey.LYRICS);
+      boolean isLargeFieldSet = picField != null || (lyric != null && !"".equals(lyric));
+      if (isLargeFieldSet && e.getMessage() != null && e.getMessage().contains("permissions")) {
+        if (picField != null) tag.deleteArtworkField();
+        if (lyric != null && !"".equals(lyric)) tag.deleteField(FieldKey.LYRICS);
         audioFile.commit();
-        tag.setField(FieldKey.LYRICS, lyric);
+        if (picField != null) tag.setField(picField);
+        if (lyric != null && !"".equals(lyric)) tag.setField(FieldKey.LYRICS, lyric);
         audioFile.commit();
       } else throw e;
     }
+    return true;
   }
-  public static void writeLyric(ReactApplicationContext context, String filePath, String lyric) throws Exception {
+  public static boolean writeTags(ReactApplicationContext context, String filePath, Bundle options) throws Exception {
     MediaFile mediaFile = new MediaFile(context, filePath);
+    boolean isChanged = true;
     try {
       try {
         File file = mediaFile.getFile(true);
-        writeLyric(file, lyric);
+        isChanged = writeTags(file, options);
       } catch (Exception e) {
         mediaFile.closeFile();
-        writeLyric(mediaFile.getTempFile(), lyric);
+        isChanged = writeTags(mediaFile.getTempFile(), options);
       }
     } finally {
-      mediaFile.closeFile();
+      mediaFile.closeFile(isChanged);
+      if (isChanged) {
+        MetadataIndex.getInstance(context).remove(filePath);
+        AudioFileCache.remove(filePath);
+      }
     }
+    return isChanged;
   }
-
 }
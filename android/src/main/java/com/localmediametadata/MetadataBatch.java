@@ -0,0 +1,150 @@
+package com.localmediametadata;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read the metadata of many files in one bridge call,
+ * the results are sent back in chunks by the {@link #EVENT_NAME} event as soon as they are ready
+ */
+public class MetadataBatch {
+  public static final String EVENT_NAME = "LocalMediaMetadata_readMetadataBatch";
+  private static final int DEFAULT_CHUNK_SIZE = 50;
+  // the documents queried together before they are read
+  private static final int PREFETCH_SIZE = 100;
+  private static final ConcurrentHashMap<String, MetadataBatch> tasks = new ConcurrentHashMap<>();
+
+  private final ReactApplicationContext context;
+  private final String requestId;
+  private final List<String> paths;
+  private final ChunkEmitter emitter;
+  private final Promise promise;
+  private final AsyncTask.Priority priority;
+  private final boolean isPreferMediaStore;
+  private Executor executor;
+  private final AtomicInteger nextIndex = new AtomicInteger(0);
+  private final AtomicInteger runningWorkers = new AtomicInteger(0);
+  private final Object prefetchLock = new Object();
+  private int prefetchedCount = 0;
+  private int mediaStoreQueriedCount = 0;
+  private final HashMap<String, MetadataIndex.Entry> mediaStoreEntries = new HashMap<>();
+  private volatile boolean isCanceled = false;
+  private int successCount = 0;
+  private int failedCount = 0;
+
+  private MetadataBatch(ReactApplicationContext context, String requestId, List<String> paths, int chunkSize, AsyncTask.Priority priority, boolean isPreferMediaStore, Promise promise) {
+    this.context = context;
+    this.requestId = requestId;
+    this.paths = paths;
+    this.emitter = new ChunkEmitter(context, EVENT_NAME, requestId, chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE);
+    this.promise = promise;
+    this.priority = priority;
+    this.isPreferMediaStore = isPreferMediaStore;
+  }
+
+  /**
+   * @param isPreferMediaStore take the metadata of the `content://media/...` uris from MediaStore, only the files MediaStore has not scanned yet are parsed
+   */
+  public static void start(ReactApplicationContext context, String requestId, List<String> paths, int chunkSize, AsyncTask.Priority priority, boolean isPreferMediaStore, Promise promise) {
+    MetadataBatch batch = new MetadataBatch(context, requestId, paths, chunkSize, priority, isPreferMediaStore, promise);
+    if (tasks.putIfAbsent(requestId, batch) != null) {
+      promise.reject("-1", "Request id already exists: " + requestId);
+      return;
+    }
+    batch.run();
+  }
+  public static boolean cancel(String requestId) {
+    MetadataBatch batch = tasks.get(requestId);
+    if (batch == null) return false;
+    batch.isCanceled = true;
+    return true;
+  }
+
+  private void run() {
+    if (paths.isEmpty()) {
+      finish();
+      return;
+    }
+    AsyncTask.Lane lane = AsyncTask.getReadLane(paths.get(0));
+    executor = AsyncTask.getExecutor(lane);
+    int workers = Math.min(lane.getSize(), paths.size());
+    runningWorkers.set(workers);
+    for (int i = 0; i < workers; i++) executor.execute(AsyncTask.withPriority(priority, this::work));
+  }
+
+  /**
+   * Read one file and queue the worker again, so the reads of a higher priority queued meanwhile run first
+   */
+  private void work() {
+    int index = isCanceled ? paths.size() : nextIndex.getAndIncrement();
+    if (index >= paths.size()) {
+      if (runningWorkers.decrementAndGet() == 0) finish();
+      return;
+    }
+    prefetch(index);
+    String path = paths.get(index);
+    WritableMap item = Arguments.createMap();
+    item.putString("path", path);
+    try {
+      MetadataIndex.Entry entry = null;
+      if (isPreferMediaStore) {
+        synchronized (prefetchLock) {
+          entry = mediaStoreEntries.remove(path);
+        }
+      }
+      item.putMap("metadata", entry == null ? Metadata.readMetadata(context, path) : entry.toWritableMap());
+      addItem(item, true);
+    } catch (Exception err) {
+      Log.e("ReadMetadataBatch", "Read Metadata Error: " + path);
+      err.printStackTrace();
+      item.putNull("metadata");
+      item.putString("error", err.getMessage());
+      addItem(item, false);
+    }
+    executor.execute(AsyncTask.withPriority(priority, this::work));
+  }
+
+  /**
+   * Query the name, size and modified time of the next documents at once, the reads of them skip their own queries.
+   * With isPreferMediaStore the metadata of the next MediaStore uris is queried at once too.
+   */
+  private void prefetch(int index) {
+    synchronized (prefetchLock) {
+      if (isPreferMediaStore && index >= mediaStoreQueriedCount) {
+        mediaStoreQueriedCount = Math.min(paths.size(), index + MediaStoreMetadata.MAX_QUERY_SIZE);
+        mediaStoreEntries.putAll(MediaStoreMetadata.query(context, paths.subList(index, mediaStoreQueriedCount)));
+      }
+      if (index < prefetchedCount) return;
+      prefetchedCount = Math.min(paths.size(), index + PREFETCH_SIZE);
+      DocumentInfo.prefetch(context, paths.subList(index, prefetchedCount));
+    }
+  }
+
+  private synchronized void addItem(WritableMap item, boolean isSuccess) {
+    if (isSuccess) successCount++;
+    else failedCount++;
+    emitter.add(item);
+  }
+
+  private synchronized void finish() {
+    tasks.remove(requestId);
+    emitter.flush(true);
+    WritableMap result = Arguments.createMap();
+    result.putString("requestId", requestId);
+    result.putInt("total", paths.size());
+    result.putInt("success", successCount);
+    result.putInt("failed", failedCount);
+    result.putBoolean("canceled", isCanceled);
+    promise.resolve(result);
+  }
+}
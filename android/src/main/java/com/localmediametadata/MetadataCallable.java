@@ -27,24 +27,24 @@ public class MetadataCallable {
       }
     }
   }
-  public static class WriteMetadata implements Callable<Object> {
+  public static class ReadAudioInfo implements Callable<Object> {
     private final ReactApplicationContext context;
     private final String filePath;
-    private final Bundle metadata;
-    private final boolean isOverwrite;
-    public WriteMetadata(ReactApplicationContext context, String filePath, Bundle metadata, boolean isOverwrite) {
+    public ReadAudioInfo(ReactApplicationContext context, String filePath) {
       this.context = context;
       this.filePath = filePath;
-      this.metadata = metadata;
-      this.isOverwrite = isOverwrite;
     }
     @Override
-    public Object call() throws Exception {
-      Metadata.writeMetadata(this.context, this.filePath, this.metadata, this.isOverwrite);
-      return null;
+    public WritableMap call() {
+      try {
+        return Metadata.readAudioInfo(this.context, this.filePath);
+      } catch (Exception err) {
+        Log.e("ReadMetadata", "Read Audio Info Error:");
+        err.printStackTrace();
+        return null;
+      }
     }
   }
-
   public static class ReadPic implements Callable<Object> {
     private final ReactApplicationContext context;
     private final String filePath;
@@ -65,22 +65,26 @@ public class MetadataCallable {
       }
     }
   }
-  public static class WritePic implements Callable<Object> {
+  public static class ReadPicThumbnail implements Callable<Object> {
     private final ReactApplicationContext context;
     private final String filePath;
-    private final String picPath;
-    public WritePic(ReactApplicationContext context, String filePath, String picPath) {
+    private final int maxSize;
+    public ReadPicThumbnail(ReactApplicationContext context, String filePath, int maxSize) {
       this.context = context;
       this.filePath = filePath;
-      this.picPath = picPath;
+      this.maxSize = maxSize;
     }
     @Override
-    public Object call() throws Exception {
-      Metadata.writePic(this.context, this.filePath, this.picPath);
-      return null;
+    public String call() {
+      try {
+        return Metadata.readPicThumbnail(this.context, this.filePath, this.maxSize);
+      } catch (Exception err) {
+        Log.e("ReadMetadata", "Read Pic Thumbnail Error:");
+        err.printStackTrace();
+        return "";
+      }
     }
   }
-
   public static class ReadLyric implements Callable<Object> {
     private final ReactApplicationContext context;
     private final String filePath;
@@ -101,35 +105,4 @@ public class MetadataCallable {
       }
     }
   }
-  public static class WriteLyric implements Callable<Object> {
-    private final ReactApplicationContext context;
-    private final String filePath;
-    private final String lyric;
-    public WriteLyric(ReactApplicationContext context, String filePath, String lyric) {
-      this.context = context;
-      this.filePath = filePath;
-      this.lyric = lyric;
-    }
-    @Override
-    public Object call() throws Exception {
-      Metadata.writeLyric(this.context, this.filePath, this.lyric);
-      return null;
-    }
-  }
-
-//  static class ScanFiles implements Callable<Object> {
-//    private final ReactApplicationContext context;
-//    private final String dirPath;
-//    private final ArrayList<String> extNames;
-//    public ScanFiles(ReactApplicationContext context, String dirPath, ArrayList<String> extNames) {
-//      this.context = context;
-//      this.dirPath = dirPath;
-//      this.extNames = extNames;
-//    }
-//
-//    @Override
-//    public WritableArray call() {
-//      return Utils.scanAudioFiles(this.context, this.dirPath, this.extNames);
-//    }
-//  }
 }
@@ -0,0 +1,240 @@
+package com.localmediametadata;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persistent index of the parsed metadata, stored in the app cache dir.
+ * An entry is only used while the size and the last modified time of the file are unchanged.
+ */
+public class MetadataIndex {
+  private static final String FILE_NAME = "local-media-metadata-index.bin";
+  private static final int VERSION = 1;
+  private static final int MAX_ENTRIES = 50000;
+  private static final long SAVE_DELAY = 3000;
+  private static final int MAX_UTF_BYTES = 65535;
+
+  public static class Entry {
+    final long size;
+    final long lastModified;
+    final String name;
+    final String singer;
+    final String albumName;
+    final double interval;
+    final String bitrate;
+    final String type;
+    final String ext;
+
+    Entry(long size, long lastModified, String name, String singer, String albumName,
+          double interval, String bitrate, String type, String ext) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.name = name;
+      this.singer = singer;
+      this.albumName = albumName;
+      this.interval = interval;
+      this.bitrate = bitrate;
+      this.type = type;
+      this.ext = ext;
+    }
+
+    public WritableMap toWritableMap() {
+      WritableMap params = Arguments.createMap();
+      params.putString("name", name);
+      params.putString("singer", singer);
+      params.putString("albumName", albumName);
+      params.putDouble("interval", interval);
+      params.putString("bitrate", bitrate);
+      params.putString("type", type);
+      params.putString("ext", ext);
+      params.putDouble("size", size);
+      return params;
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeLong(size);
+      out.writeLong(lastModified);
+      writeString(out, name);
+      writeString(out, singer);
+      writeString(out, albumName);
+      out.writeDouble(interval);
+      writeString(out, bitrate);
+      writeString(out, type);
+      writeString(out, ext);
+    }
+    private static Entry read(DataInputStream in) throws IOException {
+      return new Entry(in.readLong(), in.readLong(), in.readUTF(), in.readUTF(), in.readUTF(),
+        in.readDouble(), in.readUTF(), in.readUTF(), in.readUTF());
+    }
+  }
+
+  /**
+   * writeUTF throws on null and on more than 65535 encoded bytes, a null is stored as "" and a longer value is cut
+   */
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) value = "";
+    else if (getUtfLength(value) > MAX_UTF_BYTES) {
+      // a char takes at most 3 bytes, do not cut a surrogate pair
+      int end = MAX_UTF_BYTES / 3;
+      if (Character.isHighSurrogate(value.charAt(end - 1))) end--;
+      value = value.substring(0, end);
+    }
+    out.writeUTF(value);
+  }
+  private static int getUtfLength(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+    }
+    return length;
+  }
+
+  private static MetadataIndex instance;
+
+  private final File indexFile;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(256, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+  // the index file is parsed off the lock of the entries, the lookups of the JS thread never wait for it
+  private final Object loadLock = new Object();
+  private volatile boolean isLoaded = false;
+  private final AtomicBoolean isLoading = new AtomicBoolean(false);
+  private boolean isSaveScheduled = false;
+
+  private MetadataIndex(Context context) {
+    this.indexFile = new File(context.getCacheDir(), FILE_NAME);
+  }
+
+  public static synchronized MetadataIndex getInstance(Context context) {
+    if (instance == null) instance = new MetadataIndex(context);
+    return instance;
+  }
+
+  private void load() {
+    if (isLoaded) return;
+    synchronized (loadLock) {
+      if (isLoaded) return;
+      LinkedHashMap<String, Entry> loadedEntries = new LinkedHashMap<>();
+      if (indexFile.exists()) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+          if (in.readInt() == VERSION) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+              String path = in.readUTF();
+              loadedEntries.put(path, Entry.read(in));
+            }
+          }
+        } catch (Exception e) {
+          Log.e(Utils.LOG, "Load metadata index failed: " + e.getMessage());
+          loadedEntries.clear();
+        }
+      }
+      synchronized (this) {
+        // a clear during the load drops the file
+        if (!isLoaded) entries.putAll(loadedEntries);
+        isLoaded = true;
+      }
+    }
+  }
+
+  private void save() {
+    ArrayList<Map.Entry<String, Entry>> snapshot;
+    synchronized (this) {
+      isSaveScheduled = false;
+      snapshot = new ArrayList<>(entries.entrySet());
+    }
+    File tempFile = new File(indexFile.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+      out.writeInt(VERSION);
+      // the path is the key and can not be cut, such an entry is not stored
+      int count = 0;
+      for (Map.Entry<String, Entry> entry : snapshot) {
+        if (getUtfLength(entry.getKey()) <= MAX_UTF_BYTES) count++;
+      }
+      out.writeInt(count);
+      for (Map.Entry<String, Entry> entry : snapshot) {
+        if (getUtfLength(entry.getKey()) > MAX_UTF_BYTES) continue;
+        out.writeUTF(entry.getKey());
+        entry.getValue().write(out);
+      }
+    } catch (Exception e) {
+      Log.e(Utils.LOG, "Save metadata index failed: " + e.getMessage());
+      tempFile.delete();
+      return;
+    }
+    if (!tempFile.renameTo(indexFile)) tempFile.delete();
+  }
+
+  private void scheduleSave() {
+    if (isSaveScheduled) return;
+    isSaveScheduled = true;
+    handler.postDelayed(() -> AsyncTask.getExecutor(AsyncTask.Lane.WRITE).execute(this::save), SAVE_DELAY);
+  }
+
+  public Entry get(String path, long size, long lastModified) {
+    load();
+    return getLoaded(path, size, lastModified);
+  }
+  private synchronized Entry getLoaded(String path, long size, long lastModified) {
+    Entry entry = entries.get(path);
+    if (entry == null) return null;
+    if (entry.size == size && entry.lastModified == lastModified) return entry;
+    entries.remove(path);
+    scheduleSave();
+    return null;
+  }
+
+  /**
+   * Same as {@link #get}, but never waits for the index file, used by the synchronous lookups of the JS thread
+   * @return null if the index is still loading
+   */
+  public Entry getIfLoaded(String path, long size, long lastModified) {
+    if (isLoaded) return getLoaded(path, size, lastModified);
+    if (isLoading.compareAndSet(false, true)) AsyncTask.getExecutor(AsyncTask.Lane.READ).execute(this::load);
+    return null;
+  }
+
+  public void put(String path, Entry entry) {
+    load();
+    synchronized (this) {
+      entries.put(path, entry);
+      scheduleSave();
+    }
+  }
+
+  public void remove(String path) {
+    load();
+    synchronized (this) {
+      if (entries.remove(path) != null) scheduleSave();
+    }
+  }
+
+  public synchronized void clear() {
+    isLoaded = true;
+    entries.clear();
+    scheduleSave();
+  }
+}
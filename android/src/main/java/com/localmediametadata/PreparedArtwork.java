@@ -0,0 +1,80 @@
+package com.localmediametadata;
+
+import org.jaudiotagger.tag.Tag;
+import org.jaudiotagger.tag.TagField;
+import org.jaudiotagger.tag.flac.FlacTag;
+import org.jaudiotagger.tag.images.Artwork;
+import org.jaudiotagger.tag.images.ArtworkFactory;
+import org.jaudiotagger.tag.mp4.Mp4Tag;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A picture file read once and reused by the writes of many files, e.g. one cover for a whole album.
+ * The FLAC PICTURE block and the MP4 covr field keep their encoded bytes, so the same field is set to every tag.
+ * An ID3 APIC frame belongs to the tag it is set to, so only the picture data is shared for MP3.
+ */
+class PreparedArtwork {
+  private static final int MAX_COUNT = 4;
+  // path|size|lastModified -> artwork, an edited picture gets a new key
+  private static final LinkedHashMap<String, PreparedArtwork> cache = new LinkedHashMap<>(8, 0.75f, true);
+
+  final Artwork artwork;
+  private TagField flacField;
+  private TagField mp4Field;
+
+  private PreparedArtwork(Artwork artwork) {
+    this.artwork = artwork;
+  }
+
+  static PreparedArtwork get(String picPath) throws Exception {
+    File file = new File(picPath);
+    String key = picPath + "|" + file.length() + "|" + file.lastModified();
+    synchronized (cache) {
+      PreparedArtwork prepared = cache.get(key);
+      if (prepared != null) return prepared;
+    }
+    PreparedArtwork prepared = new PreparedArtwork(ArtworkFactory.createArtworkFromFile(file));
+    synchronized (cache) {
+      // a parallel write may have read it too, keep the first one so the fields are shared
+      PreparedArtwork current = cache.get(key);
+      if (current != null) return current;
+      cache.put(key, prepared);
+      Iterator<String> keys = cache.keySet().iterator();
+      while (cache.size() > MAX_COUNT) {
+        keys.next();
+        keys.remove();
+      }
+    }
+    return prepared;
+  }
+
+  private static TagField createFlacArtworkField(FlacTag tag, Artwork artwork) throws Exception {
+    return tag.createArtworkField(artwork.getBinaryData(),
+      artwork.getPictureType(),
+      artwork.getMimeType(),
+      artwork.getDescription(),
+      artwork.getWidth(),
+      artwork.getHeight(),
+      0,
+      "image/jpeg".equals(artwork.getMimeType()) ? 24 : 32
+    );
+  }
+
+  /**
+   * The artwork field for the tag, the FLAC and MP4 fields are built once and shared
+   */
+  synchronized TagField createField(Tag tag) throws Exception {
+    if (tag instanceof FlacTag) {
+      if (flacField == null) flacField = createFlacArtworkField((FlacTag) tag, artwork);
+      return flacField;
+    }
+    if (tag instanceof Mp4Tag) {
+      if (mp4Field == null) mp4Field = tag.createField(artwork);
+      return mp4Field;
+    }
+    return tag.createField(artwork);
+  }
+}
@@ -0,0 +1,152 @@
+package com.localmediametadata;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state of the last scan of a directory, used by the incremental scan
+ * to report only the files added, removed or modified since then
+ */
+class ScanJournal {
+  private static final String DIR_NAME = "local-media-metadata-scan";
+  private static final int VERSION = 1;
+
+  static class FileRecord {
+    final long size;
+    final long lastModified;
+    FileRecord(long size, long lastModified) {
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+  }
+
+  static class DirRecord {
+    final long fingerprint;
+    // file path -> record, only the accepted audio files are recorded
+    final HashMap<String, FileRecord> files;
+    DirRecord(long fingerprint, HashMap<String, FileRecord> files) {
+      this.fingerprint = fingerprint;
+      this.files = files;
+    }
+  }
+
+  private final File journalFile;
+  private final HashMap<String, DirRecord> lastDirs = new HashMap<>();
+  private final ConcurrentHashMap<String, DirRecord> currentDirs = new ConcurrentHashMap<>();
+
+  ScanJournal(Context context, String key) {
+    this.journalFile = new File(new File(context.getCacheDir(), DIR_NAME), Long.toHexString(fingerprint(Collections.singletonList(key))) + ".bin");
+    load();
+  }
+
+  /**
+   * 64-bit FNV-1a hash of a directory listing
+   */
+  static long fingerprint(List<String> names) {
+    long hash = 0xcbf29ce484222325L;
+    for (String name : names) {
+      for (int i = 0; i < name.length(); i++) {
+        hash ^= name.charAt(i);
+        hash *= 0x100000001b3L;
+      }
+      hash ^= '/';
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  DirRecord getLastDir(String dirPath) {
+    return lastDirs.get(dirPath);
+  }
+  void putDir(String dirPath, DirRecord record) {
+    currentDirs.put(dirPath, record);
+  }
+
+  /**
+   * Keep the last record of the directories this scan did not visit, used when a directory could not be listed.
+   * Its files and the files of its subdirectories are then neither reported as removed nor dropped from the journal.
+   */
+  void keepUnvisitedDirs() {
+    for (Map.Entry<String, DirRecord> dir : lastDirs.entrySet()) currentDirs.putIfAbsent(dir.getKey(), dir.getValue());
+  }
+
+  /**
+   * The files of the last scan that were not found again
+   */
+  List<String> collectRemovedFiles() {
+    ArrayList<String> removedFiles = new ArrayList<>();
+    for (Map.Entry<String, DirRecord> dir : lastDirs.entrySet()) {
+      DirRecord currentDir = currentDirs.get(dir.getKey());
+      for (String path : dir.getValue().files.keySet()) {
+        if (currentDir == null || !currentDir.files.containsKey(path)) removedFiles.add(path);
+      }
+    }
+    return removedFiles;
+  }
+
+  private void load() {
+    if (!journalFile.exists()) return;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+      if (in.readInt() != VERSION) return;
+      int dirCount = in.readInt();
+      for (int i = 0; i < dirCount; i++) {
+        String dirPath = in.readUTF();
+        long fingerprint = in.readLong();
+        int fileCount = in.readInt();
+        HashMap<String, FileRecord> files = new HashMap<>(fileCount);
+        for (int j = 0; j < fileCount; j++) {
+          files.put(in.readUTF(), new FileRecord(in.readLong(), in.readLong()));
+        }
+        lastDirs.put(dirPath, new DirRecord(fingerprint, files));
+      }
+    } catch (Exception e) {
+      Log.e(Utils.LOG, "Load scan journal failed: " + e.getMessage());
+      lastDirs.clear();
+    }
+  }
+
+  void save() {
+    File dir = journalFile.getParentFile();
+    if (dir != null && !dir.exists()) dir.mkdirs();
+    File tempFile = new File(journalFile.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+      out.writeInt(VERSION);
+      out.writeInt(currentDirs.size());
+      for (Map.Entry<String, DirRecord> dirEntry : currentDirs.entrySet()) {
+        out.writeUTF(dirEntry.getKey());
+        out.writeLong(dirEntry.getValue().fingerprint);
+        out.writeInt(dirEntry.getValue().files.size());
+        for (Map.Entry<String, FileRecord> fileEntry : dirEntry.getValue().files.entrySet()) {
+          out.writeUTF(fileEntry.getKey());
+          out.writeLong(fileEntry.getValue().size);
+          out.writeLong(fileEntry.getValue().lastModified);
+        }
+      }
+    } catch (Exception e) {
+      Log.e(Utils.LOG, "Save scan journal failed: " + e.getMessage());
+      tempFile.delete();
+      return;
+    }
+    if (!tempFile.renameTo(journalFile)) tempFile.delete();
+  }
+
+  static void clear(Context context) {
+    File[] files = new File(context.getCacheDir(), DIR_NAME).listFiles();
+    if (files == null) return;
+    for (File file : files) file.delete();
+  }
+}
@@ -0,0 +1,220 @@
+package com.localmediametadata;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Size-bounded LRU disk cache of the downsampled artwork.
+ * The key is built from the path, size and last modified time of the audio file,
+ * so a cached thumbnail is found again without opening the audio file and an edited file gets a new key.
+ */
+public class ThumbnailCache {
+  private static final String DIR_NAME = "local-media-metadata-thumb";
+  private static final long MAX_BYTES = 32 * 1024 * 1024;
+  private static final int JPEG_QUALITY = 90;
+  // written for the files without artwork, so they are not opened again either
+  private static final String EMPTY_EXT = "none";
+
+  private static ThumbnailCache instance;
+
+  private final File cacheDir;
+  private final LinkedHashMap<String, File> files = new LinkedHashMap<>(256, 0.75f, true);
+  private long totalBytes = 0;
+  // the cache dir is listed off the lock of the files, the lookups of the JS thread never wait for it
+  private final Object loadLock = new Object();
+  private volatile boolean isLoaded = false;
+  private final AtomicBoolean isLoading = new AtomicBoolean(false);
+
+  private ThumbnailCache(Context context) {
+    this.cacheDir = new File(context.getCacheDir(), DIR_NAME);
+  }
+
+  public static synchronized ThumbnailCache getInstance(Context context) {
+    if (instance == null) instance = new ThumbnailCache(context);
+    return instance;
+  }
+
+  public static String createKey(MediaFile mediaFile, String path, int maxSize) {
+    return Long.toHexString(ScanJournal.fingerprint(Arrays.asList(path,
+      String.valueOf(mediaFile.size()),
+      String.valueOf(mediaFile.lastModified()),
+      String.valueOf(maxSize))));
+  }
+
+  private void load() {
+    if (isLoaded) return;
+    synchronized (loadLock) {
+      if (isLoaded) return;
+      LinkedHashMap<String, File> loadedFiles = new LinkedHashMap<>();
+      long loadedBytes = 0;
+      File[] cachedFiles = cacheDir.listFiles();
+      if (cachedFiles != null) {
+        Arrays.sort(cachedFiles, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : cachedFiles) {
+          String name = file.getName();
+          int index = name.lastIndexOf('.');
+          if (index < 1 || name.endsWith(".tmp")) {
+            file.delete();
+            continue;
+          }
+          loadedFiles.put(name.substring(0, index), file);
+          loadedBytes += file.length();
+        }
+      }
+      synchronized (this) {
+        // a clear during the load deleted the listed files
+        if (!isLoaded) {
+          files.putAll(loadedFiles);
+          totalBytes += loadedBytes;
+        }
+        isLoaded = true;
+      }
+    }
+  }
+
+  private static String getResult(File file) {
+    return file.getName().endsWith("." + EMPTY_EXT) ? "" : file.getPath();
+  }
+
+  /**
+   * Keep the order of use across restarts, off the calling thread
+   */
+  private static void touch(File file) {
+    long now = System.currentTimeMillis();
+    AsyncTask.getExecutor(AsyncTask.Lane.READ).execute(() -> file.setLastModified(now));
+  }
+
+  private void trim() {
+    while (totalBytes > MAX_BYTES && !files.isEmpty()) {
+      String eldestKey = files.keySet().iterator().next();
+      File file = files.remove(eldestKey);
+      totalBytes -= file.length();
+      file.delete();
+    }
+  }
+
+  /**
+   * @return the cached thumbnail path, "" if the file has no artwork, null if not cached
+   */
+  public String get(String key) {
+    load();
+    File file;
+    synchronized (this) {
+      file = files.get(key);
+    }
+    if (file == null) return null;
+    if (!file.exists()) {
+      synchronized (this) {
+        if (files.get(key) == file) files.remove(key);
+      }
+      return null;
+    }
+    touch(file);
+    return getResult(file);
+  }
+
+  /**
+   * Same as {@link #get}, but never waits for the cache dir listing and does no disk I/O,
+   * used by the synchronous lookups of the JS thread
+   */
+  public String getIfLoaded(String key) {
+    if (!isLoaded) {
+      if (isLoading.compareAndSet(false, true)) AsyncTask.getExecutor(AsyncTask.Lane.READ).execute(this::load);
+      return null;
+    }
+    File file;
+    synchronized (this) {
+      file = files.get(key);
+    }
+    // the map is trusted here, the file is checked by the asynchronous reads
+    if (file == null) return null;
+    touch(file);
+    return getResult(file);
+  }
+
+  private String add(String key, File file) {
+    load();
+    synchronized (this) {
+      File oldFile = files.put(key, file);
+      if (oldFile != null) totalBytes -= oldFile.length();
+      totalBytes += file.length();
+      trim();
+    }
+    return getResult(file);
+  }
+
+  /**
+   * Downsample the picture to fit in maxSize and store it
+   * @param data the embedded picture, null if the file has no artwork
+   * @return the thumbnail path, "" if there is no artwork or the picture can not be decoded
+   */
+  public String put(String key, byte[] data, int maxSize) {
+    if (!cacheDir.exists() && !cacheDir.mkdirs()) return "";
+    Bitmap bitmap = data == null ? null : createThumbnail(data, maxSize);
+    File file;
+    if (bitmap == null) {
+      file = new File(cacheDir, key + "." + EMPTY_EXT);
+      try {
+        if (!file.exists() && !file.createNewFile()) return "";
+      } catch (Exception e) {
+        return "";
+      }
+    } else {
+      boolean isPng = bitmap.hasAlpha();
+      file = new File(cacheDir, key + (isPng ? ".png" : ".jpg"));
+      File tempFile = new File(file.getPath() + ".tmp");
+      try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+        bitmap.compress(isPng ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG, JPEG_QUALITY, fos);
+      } catch (Exception e) {
+        Log.e(Utils.LOG, "Save thumbnail failed: " + e.getMessage());
+        tempFile.delete();
+        return "";
+      } finally {
+        bitmap.recycle();
+      }
+      if (!tempFile.renameTo(file)) {
+        tempFile.delete();
+        return "";
+      }
+    }
+    return add(key, file);
+  }
+
+  private static Bitmap createThumbnail(byte[] data, int maxSize) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+    // decode at the smallest power of two scale that is still not smaller than maxSize
+    int sampleSize = 1;
+    while (Math.max(options.outWidth, options.outHeight) / (sampleSize * 2) >= maxSize) sampleSize *= 2;
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = sampleSize;
+    Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    if (bitmap == null) return null;
+    int width = bitmap.getWidth();
+    int height = bitmap.getHeight();
+    if (Math.max(width, height) <= maxSize) return bitmap;
+    float scale = (float) maxSize / Math.max(width, height);
+    Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)), true);
+    if (scaledBitmap != bitmap) bitmap.recycle();
+    return scaledBitmap;
+  }
+
+  public synchronized void clear() {
+    isLoaded = true;
+    files.clear();
+    totalBytes = 0;
+    File[] cachedFiles = cacheDir.listFiles();
+    if (cachedFiles == null) return;
+    for (File file : cachedFiles) file.delete();
+  }
+}
@@ -1,11 +1,17 @@
 package com.localmediametadata;
 
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.net.Uri;
+import android.os.Environment;
 import android.util.Base64;
 
 import androidx.documentfile.provider.DocumentFile;
 
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 
 import org.mozilla.universalchardet.UniversalDetector;
 
@@ -13,35 +19,49 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 public class Utils {
   public static final String LOG = "Metadata";
-//  private static class MediaFileFilter implements FilenameFilter {
-//    final Pattern pattern;
-//    MediaFileFilter(ArrayList<String> extNames) {
-//      super();
-//      String rxp = "mp3|flac";
-//      if (!extNames.isEmpty()) {
-//        StringBuilder result = new StringBuilder(extNames.get(0));
-//        for (int i = 1; i < extNames.size(); i++) {
-//          result.append("|").append(extNames.get(i));
-//        }
-//        rxp = result.toString();
-//      }
-//      rxp = "\\.(" + rxp + ")$";
-//      // Log.d("MetaData", "rxp: " + rxp);
-//      this.pattern = Pattern.compile(rxp);
-//    }
-//    @Override
-//    public boolean accept(File dir, String name) {
-//      return pattern.matcher(name.toLowerCase()).find();
-//    }
-//  }
+  public static class MediaFileFilter implements FilenameFilter {
+    final Pattern pattern;
+    MediaFileFilter(List<String> extNames) {
+      super();
+      String rxp = "mp3|flac";
+      if (!extNames.isEmpty()) {
+        StringBuilder result = new StringBuilder(Pattern.quote(extNames.get(0).toLowerCase()));
+        for (int i = 1; i < extNames.size(); i++) {
+          result.append("|").append(Pattern.quote(extNames.get(i).toLowerCase()));
+        }
+        rxp = result.toString();
+      }
+      rxp = "\\.(" + rxp + ")$";
+      // Log.d("MetaData", "rxp: " + rxp);
+      this.pattern = Pattern.compile(rxp);
+    }
+    public boolean accept(String name) {
+      return pattern.matcher(name.toLowerCase()).find();
+    }
+    @Override
+    public boolean accept(File dir, String name) {
+      return accept(name);
+    }
+  }
+
+  public static void sendEvent(ReactApplicationContext context, String eventName, Object params) {
+    if (!context.hasActiveReactInstance()) return;
+    context
+      .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+      .emit(eventName, params);
+  }
 
   public static boolean isContentUri(String path) {
     return path.startsWith("content://");
@@ -49,6 +69,86 @@ public class Utils {
   public static boolean isTreeUri(Uri uri) {
     return "tree".equals(uri.getPathSegments().get(0));
   }
+  // volume -> removable, Environment.isExternalStorageRemovable is a binder call to StorageManager on every use
+  private static final ConcurrentHashMap<String, Boolean> removableVolumes = new ConcurrentHashMap<>();
+  private static boolean isStorageReceiverRegistered = false;
+
+  /**
+   * Whether the path points to removable storage (SD card / USB), which handles parallel reads poorly
+   */
+  public static boolean isRemovableStorage(String path) {
+    if (isContentUri(path)) {
+      try {
+        Uri uri = Uri.parse(path);
+        if (!"com.android.externalstorage.documents".equals(uri.getAuthority())) return false;
+        // document id is "<volume>:<path>", the internal shared storage is always "primary"
+        String docId = uri.getLastPathSegment();
+        return docId != null && !docId.startsWith("primary:") && !docId.startsWith("home:");
+      } catch (Exception e) {
+        return false;
+      }
+    }
+    File file = parsePathToFile(path);
+    String filePath = file.getAbsolutePath();
+    // only the shared storage volumes can be removable, the app private dirs are on the internal flash
+    if (!filePath.startsWith("/storage/") && !filePath.startsWith("/mnt/") && !filePath.startsWith("/sdcard")) return false;
+    String volume = getStorageVolume(filePath);
+    Boolean isRemovable = removableVolumes.get(volume);
+    if (isRemovable != null) return isRemovable;
+    try {
+      isRemovable = Environment.isExternalStorageRemovable(file);
+    } catch (Exception e) {
+      return false;
+    }
+    removableVolumes.put(volume, isRemovable);
+    return isRemovable;
+  }
+  /**
+   * Forget the removable flags of the volumes when a volume is mounted or removed, its id may be used again
+   */
+  public static void registerStorageReceiver(Context context) {
+    synchronized (removableVolumes) {
+      if (isStorageReceiverRegistered) return;
+      isStorageReceiverRegistered = true;
+    }
+    IntentFilter filter = new IntentFilter();
+    filter.addAction(Intent.ACTION_MEDIA_MOUNTED);
+    filter.addAction(Intent.ACTION_MEDIA_UNMOUNTED);
+    filter.addAction(Intent.ACTION_MEDIA_REMOVED);
+    filter.addAction(Intent.ACTION_MEDIA_EJECT);
+    filter.addAction(Intent.ACTION_MEDIA_BAD_REMOVAL);
+    filter.addDataScheme("file");
+    context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+      @Override
+      public void onReceive(Context context, Intent intent) {
+        removableVolumes.clear();
+      }
+    }, filter);
+  }
+  /**
+   * The storage volume of the path, "primary" for the internal shared storage, the volume id (e.g. "1234-ABCD") for the others
+   */
+  public static String getStorageVolume(String path) {
+    if (isContentUri(path)) {
+      try {
+        Uri uri = Uri.parse(path);
+        if (!"com.android.externalstorage.documents".equals(uri.getAuthority())) return uri.getAuthority();
+        String docId = uri.getLastPathSegment();
+        if (docId == null || docId.startsWith("home:")) return "primary";
+        int index = docId.indexOf(':');
+        return index > 0 ? docId.substring(0, index) : "primary";
+      } catch (Exception e) {
+        return "primary";
+      }
+    }
+    // /storage/emulated/0/..., /storage/1234-ABCD/..., /mnt/media_rw/1234-ABCD/...
+    String[] segments = parsePathToFile(path).getAbsolutePath().split("/");
+    if (segments.length > 3 && ("storage".equals(segments[1]) || "media_rw".equals(segments[2]))) {
+      String volume = "storage".equals(segments[1]) ? segments[2] : segments[3];
+      if (!"emulated".equals(volume) && !"self".equals(volume)) return volume;
+    }
+    return "primary";
+  }
   public static File parsePathToFile(String path) {
     if (path.contains("://")) {
       try {
@@ -65,7 +165,10 @@ public class Utils {
     return new FileInputStream(file);
   }
   public static InputStream createInputStream(ReactApplicationContext context, DocumentFile file) throws FileNotFoundException {
-    return context.getContentResolver().openInputStream(file.getUri());
+    return createInputStream(context, file.getUri());
+  }
+  public static InputStream createInputStream(ReactApplicationContext context, Uri uri) throws FileNotFoundException {
+    return context.getContentResolver().openInputStream(uri);
   }
 
   public static OutputStream createOutputStream(ReactApplicationContext context, Uri uri, boolean append) throws IOException {
@@ -122,32 +225,61 @@ public class Utils {
     }
   }
 
-//  public static WritableArray scanAudioFiles(ReactApplicationContext context, String directoryPath, ArrayList<String> extNames) {
-//    File dir = new File(directoryPath);
-//
-//    WritableArray audioFilePaths = Arguments.createArray();
-//
-//    if (dir.exists()) {
-//      File[] mediaFiles = dir.listFiles(new MediaFileFilter(extNames));
-//      if (mediaFiles != null) {
-//        for (File file: mediaFiles) {
-//          if (file.isFile()) audioFilePaths.pushString(file.getAbsolutePath());
-//        }
-//      }
-//      // if (mediaFiles.length > 0) {
-//      //   String[] filePaths = new String[mediaFiles.length];
-//      //   for (int i = 0; i < mediaFiles.length; i++) {
-//      //     filePaths[i] = mediaFiles[i].getAbsolutePath();
-//      //     Log.d("MediaScanner", filePaths[i]);
-//      //   }
-//      //   MediaScannerConnection.scanFile(context, filePaths, null,
-//      //     (path, uri) -> {
-//      //       audioFilePaths.pushString(path);
-//      //       Log.d("MediaScanner", "Scanned " + path + ":");
-//      //       Log.d("MediaScanner", "-> uri=" + uri);
-//      //     });
-//      // }
-//    }
-//    return audioFilePaths;
-//  }
+  private static final String[] AUDIO_FTYP_BRANDS = {"M4A ", "M4B ", "M4P ", "F4A ", "F4B "};
+  // the ftyp box with its compatible brands fits in the header
+  private static final int HEADER_LENGTH = 64;
+
+  /**
+   * Check the first bytes of a file against the signatures of the supported audio containers
+   */
+  public static boolean isAudioFileHeader(byte[] header, int length) {
+    if (length < 4) return false;
+    if (startsWith(header, length, 0, "ID3")) return true;
+    // MPEG audio / ADTS frame sync
+    if ((header[0] & 0xFF) == 0xFF && (header[1] & 0xE0) == 0xE0) return true;
+    if (startsWith(header, length, 0, "fLaC")
+      || startsWith(header, length, 0, "OggS")
+      || startsWith(header, length, 0, "MAC ")
+      || startsWith(header, length, 0, "DSD ")
+      || startsWith(header, length, 0, "FRM8")
+      || startsWith(header, length, 0, "wvpk")
+      || startsWith(header, length, 0, "TTA1")) return true;
+    if (startsWith(header, length, 0, "RIFF")) return startsWith(header, length, 8, "WAVE");
+    if (startsWith(header, length, 0, "FORM")) return startsWith(header, length, 8, "AIF");
+    if (startsWith(header, length, 4, "ftyp")) return isAudioFtyp(header, length);
+    // ASF header object GUID
+    return (header[0] & 0xFF) == 0x30 && (header[1] & 0xFF) == 0x26
+      && (header[2] & 0xFF) == 0xB2 && (header[3] & 0xFF) == 0x75;
+  }
+  /**
+   * Any ISO base media file starts with ftyp, videos too, only the audio brands are taken as audio,
+   * the files of the generic brands (isom, mp42, ...) are left to the extension filter
+   */
+  private static boolean isAudioFtyp(byte[] header, int length) {
+    int boxSize = ((header[0] & 0xFF) << 24) | ((header[1] & 0xFF) << 16) | ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
+    int end = boxSize < 16 ? Math.min(length, 12) : Math.min(length, boxSize);
+    // the major brand, then the compatible brands after the minor version
+    for (int offset = 8; offset + 4 <= end; offset += offset == 8 ? 8 : 4) {
+      for (String brand : AUDIO_FTYP_BRANDS) {
+        if (startsWith(header, length, offset, brand)) return true;
+      }
+    }
+    return false;
+  }
+  private static boolean startsWith(byte[] data, int length, int offset, String magic) {
+    if (length < offset + magic.length()) return false;
+    for (int i = 0; i < magic.length(); i++) {
+      if (data[offset + i] != (byte) magic.charAt(i)) return false;
+    }
+    return true;
+  }
+  public static boolean isAudioFileHeader(InputStream inputStream) throws IOException {
+    byte[] header = new byte[HEADER_LENGTH];
+    int length = 0;
+    int read;
+    while (length < header.length && (read = inputStream.read(header, length, header.length - length)) > 0) {
+      length += read;
+    }
+    return isAudioFileHeader(header, length);
+  }
 }
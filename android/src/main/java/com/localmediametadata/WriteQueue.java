@@ -0,0 +1,131 @@
+package com.localmediametadata;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Serializes the writes of each file. The edits queued while a file is waiting or being written
+ * are merged, so only the latest values are committed once, and every caller gets its own resolution
+ * with `changed: false` if the file already had the requested values.
+ * An edit uses the options of {@link Metadata#writeTags(ReactApplicationContext, String, Bundle)}.
+ */
+public class WriteQueue {
+  private static final int LOCK_STRIPES = 32;
+  private static final Object[] locks = new Object[LOCK_STRIPES];
+  static {
+    for (int i = 0; i < LOCK_STRIPES; i++) locks[i] = new Object();
+  }
+  private static final ConcurrentHashMap<String, PendingEdit> pendingEdits = new ConcurrentHashMap<>();
+  private static final Set<String> runningPaths = ConcurrentHashMap.newKeySet();
+
+  public interface Callback {
+    /**
+     * @param error null if the edit was written or skipped as unchanged
+     */
+    void onComplete(boolean isChanged, Exception error);
+  }
+
+  private static class PendingEdit {
+    Bundle options;
+    final List<Callback> callbacks = new ArrayList<>();
+    PendingEdit(Bundle options, Callback callback) {
+      this.options = options;
+      this.callbacks.add(callback);
+    }
+  }
+
+  private static Object getLock(String filePath) {
+    return locks[(filePath.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+  }
+
+  /**
+   * Merge a later edit into a pending one, the fields set by the later edit win
+   */
+  static Bundle merge(Bundle current, Bundle next) {
+    // the overwrite drops the whole tag, so the earlier edits are lost anyway
+    if (next.getBoolean("isOverwrite", false)) return next;
+    Bundle merged = new Bundle(current);
+    Bundle metadata = next.getBundle("metadata");
+    if (metadata != null) merged.putBundle("metadata", metadata);
+    String lyric = next.getString("lyric");
+    if (lyric != null) merged.putString("lyric", lyric);
+    String picPath = next.getString("picPath");
+    if (picPath != null) merged.putString("picPath", picPath);
+    return merged;
+  }
+
+  public static void write(ReactApplicationContext context, String filePath, Bundle options, Promise promise) {
+    write(context, filePath, options, AsyncTask.getExecutor(AsyncTask.Lane.WRITE), (isChanged, error) -> {
+      if (error != null) {
+        promise.reject("-1", error.getMessage());
+        return;
+      }
+      WritableMap result = Arguments.createMap();
+      result.putBoolean("changed", isChanged);
+      promise.resolve(result);
+    });
+  }
+
+  /**
+   * @param executor runs the write if no write of the file is running, otherwise the edit is merged
+   *                 into the pending edit of the file and the callback is called by the running write
+   */
+  public static void write(ReactApplicationContext context, String filePath, Bundle options, Executor executor, Callback callback) {
+    synchronized (getLock(filePath)) {
+      PendingEdit pendingEdit = pendingEdits.get(filePath);
+      if (pendingEdit != null) {
+        pendingEdit.options = merge(pendingEdit.options, options);
+        pendingEdit.callbacks.add(callback);
+        return;
+      }
+      pendingEdits.put(filePath, new PendingEdit(options, callback));
+      // the running write picks up the new edit when it is done
+      if (!runningPaths.add(filePath)) return;
+    }
+    try {
+      executor.execute(() -> run(context, filePath));
+    } catch (Exception err) {
+      PendingEdit pendingEdit;
+      synchronized (getLock(filePath)) {
+        runningPaths.remove(filePath);
+        pendingEdit = pendingEdits.remove(filePath);
+      }
+      if (pendingEdit != null) for (Callback c : pendingEdit.callbacks) c.onComplete(false, err);
+    }
+  }
+
+  private static void run(ReactApplicationContext context, String filePath) {
+    while (true) {
+      PendingEdit edit;
+      synchronized (getLock(filePath)) {
+        edit = pendingEdits.remove(filePath);
+        if (edit == null) {
+          runningPaths.remove(filePath);
+          return;
+        }
+      }
+      if (edit.callbacks.size() > 1) Log.d("WriteQueue", "merged " + edit.callbacks.size() + " edits: " + filePath);
+      boolean isChanged = false;
+      Exception error = null;
+      try {
+        isChanged = Metadata.writeTags(context, filePath, edit.options);
+      } catch (Exception err) {
+        Log.e("WriteQueue", "Write Tags Error:");
+        err.printStackTrace();
+        error = err;
+      }
+      for (Callback callback : edit.callbacks) callback.onComplete(isChanged, error);
+    }
+  }
+}
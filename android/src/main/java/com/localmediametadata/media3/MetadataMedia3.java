@@ -20,6 +20,8 @@ import com.facebook.react.bridge.ReactApplicationContext;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.localmediametadata.AsyncTask;
+import com.localmediametadata.ThumbnailCache;
 import com.localmediametadata.Utils;
 
 import org.jaudiotagger.tag.id3.valuepair.ImageFormats;
@@ -27,15 +29,9 @@ import org.jaudiotagger.tag.id3.valuepair.ImageFormats;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.concurrent.Executor;
 
 @OptIn(markerClass = UnstableApi.class)
 public class MetadataMedia3 {
-  private static class ThreadPerTaskExecutor implements Executor {
-    public void execute(Runnable r) {
-      new Thread(r).start();
-    }
-  }
 //  private static class DirectExecutor implements Executor {
 //    public void execute(Runnable r) {
 //      r.run();
@@ -117,32 +113,59 @@ public class MetadataMedia3 {
     }
     return picFile.getPath();
   }
+  private static Metadata.Entry findFrontCover(TrackGroupArray trackGroups) {
+    for (int i = 0; i < trackGroups.length; i++) {
+      Format format = trackGroups.get(i).getFormat(0);
+      Metadata metadata = format.metadata;
+      if (metadata == null) continue;
+      for(int i2 = 0; i2 < metadata.length(); i2++) {
+        Metadata.Entry entry = metadata.get(i2);
+        if (entry instanceof ApicFrame) {
+          ApicFrame pic = (ApicFrame) entry;
+          if ("APIC".equals(pic.id) && pic.pictureType == 3) return pic;
+        } else if (entry instanceof PictureFrame) {
+          PictureFrame pic = (PictureFrame) entry;
+          if (pic.pictureType == 3) return pic;
+        }
+      }
+    }
+    return null;
+  }
   public static void readPic(ReactApplicationContext context, String uri, String picDir, Promise promise) {
     ListenableFuture<TrackGroupArray> trackGroupsFuture = MetadataRetriever.retrieveMetadata(context, MediaItem.fromUri(uri));
     Futures.addCallback(trackGroupsFuture, new FutureCallback<>() {
       @Override
       public void onSuccess(TrackGroupArray trackGroups) {
-        for (int i = 0; i < trackGroups.length; i++) {
-          Format format = trackGroups.get(i).getFormat(0);
-          Metadata metadata = format.metadata;
-          if (metadata == null) continue;
-          for(int i2 = 0; i2 < metadata.length(); i2++) {
-            Metadata.Entry entry = metadata.get(i2);
-            if (entry instanceof ApicFrame) {
-              ApicFrame pic = (ApicFrame) entry;
-              if ("APIC".equals(pic.id) && pic.pictureType == 3) {
-                promise.resolve(writePic(context, uri, picDir, pic.mimeType, pic.pictureData));
-                return;
-              }
-            } else if (entry instanceof PictureFrame) {
-              PictureFrame pic = (PictureFrame) entry;
-              if (pic.pictureType == 3) {
-                promise.resolve(writePic(context, uri, picDir, pic.mimeType, pic.pictureData));
-                return;
-              }
-            }
-          }
-          promise.resolve("");
+        Metadata.Entry entry = findFrontCover(trackGroups);
+        if (entry instanceof ApicFrame) {
+          ApicFrame pic = (ApicFrame) entry;
+          promise.resolve(writePic(context, uri, picDir, pic.mimeType, pic.pictureData));
+        } else if (entry instanceof PictureFrame) {
+          PictureFrame pic = (PictureFrame) entry;
+          promise.resolve(writePic(context, uri, picDir, pic.mimeType, pic.pictureData));
+        } else promise.resolve("");
+      }
+
+      @Override
+      public void onFailure(@NonNull Throwable t) {
+        Log.d(Utils.LOG, "error: " + t);
+        promise.reject("-1", "read failed: " + t.getMessage());
+      }
+    }, AsyncTask.getExecutor(AsyncTask.getReadLane(uri)));
+  }
+  public static void readPicThumbnail(ReactApplicationContext context, String uri, String key, int maxSize, Promise promise) {
+    ListenableFuture<TrackGroupArray> trackGroupsFuture = MetadataRetriever.retrieveMetadata(context, MediaItem.fromUri(uri));
+    Futures.addCallback(trackGroupsFuture, new FutureCallback<>() {
+      @Override
+      public void onSuccess(TrackGroupArray trackGroups) {
+        try {
+          Metadata.Entry entry = findFrontCover(trackGroups);
+          byte[] data = null;
+          if (entry instanceof ApicFrame) data = ((ApicFrame) entry).pictureData;
+          else if (entry instanceof PictureFrame) data = ((PictureFrame) entry).pictureData;
+          promise.resolve(ThumbnailCache.getInstance(context).put(key, data, maxSize));
+        } catch (Exception e) {
+          onFailure(e);
         }
       }
 
@@ -151,7 +174,7 @@ public class MetadataMedia3 {
         Log.d(Utils.LOG, "error: " + t);
         promise.reject("-1", "read failed: " + t.getMessage());
       }
-    }, new ThreadPerTaskExecutor());
+    }, AsyncTask.getExecutor(AsyncTask.getReadLane(uri)));
   }
 //  public static void readLyric(ReactApplicationContext context, String uri, Promise promise) {
 //    ListenableFuture<TrackGroupArray> trackGroupsFuture = MetadataRetriever.retrieveMetadata(context, MediaItem.fromUri(uri));
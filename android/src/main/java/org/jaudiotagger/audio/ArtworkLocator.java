@@ -0,0 +1,559 @@
+package org.jaudiotagger.audio;
+
+import org.jaudiotagger.audio.generic.Utils;
+import org.jaudiotagger.tag.id3.ID3SyncSafeInteger;
+import org.jaudiotagger.tag.id3.valuepair.ImageFormats;
+import org.jaudiotagger.tag.reference.PictureTypes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+/**
+ * Finds where the image data of the embedded artwork is stored in the file, without reading the image itself.
+ *
+ * <p>Only the structure around the picture is parsed (FLAC metadata block headers, ID3v2 frame headers, MP4 atom
+ * headers), so the image can then be copied straight from the file with {@link #transferTo(File, Location, File)}
+ * and never has to be loaded into the Java heap.
+ *
+ * <p>Pictures whose bytes are not stored as is (unsynchronised or compressed ID3 frames, encrypted frames,
+ * linked images) are not located, the caller should fall back to reading the tag.
+ */
+public class ArtworkLocator
+{
+    public static Logger logger = Logger.getLogger("org.jaudiotagger.audio");
+
+    /**
+     * Longest mime type and description accepted in front of the image data
+     */
+    private static final int MAX_PICTURE_HEADER_SIZE = 64 * 1024;
+
+    /**
+     * The position of the image data of a picture
+     */
+    public static class Location
+    {
+        private final long offset;
+        private final long length;
+        private final String mimeType;
+        private final int pictureType;
+
+        Location(long offset, long length, String mimeType, int pictureType)
+        {
+            this.offset = offset;
+            this.length = length;
+            this.mimeType = mimeType;
+            this.pictureType = pictureType;
+        }
+
+        public long getOffset()
+        {
+            return offset;
+        }
+
+        public long getLength()
+        {
+            return length;
+        }
+
+        public String getMimeType()
+        {
+            return mimeType;
+        }
+
+        public int getPictureType()
+        {
+            return pictureType;
+        }
+    }
+
+    /**
+     * Locate the front cover of the file, or the first picture if there is no front cover,
+     * the callers that fall back to the full tag read choose the picture by the same rule.
+     * Null is returned if any picture can not be located, so the choice is never made among a part of the pictures.
+     *
+     * @param file the audio file
+     * @return the location of the image data, null if the file has no picture or the picture can not be copied as is
+     * @throws IOException on any I/O error
+     */
+    public static Location locate(File file) throws IOException
+    {
+        String ext = Utils.getExtension(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            Location location;
+            switch (ext)
+            {
+                case "flac":
+                    location = locateFlac(raf);
+                    break;
+                case "mp3":
+                    location = locateId3(raf, 0);
+                    break;
+                case "mp4":
+                case "m4a":
+                case "m4b":
+                case "m4p":
+                    location = locateMp4(raf, 0, raf.length(), 0);
+                    break;
+                default:
+                    return null;
+            }
+            if (location == null || location.length <= 0 || location.offset + location.length > raf.length())
+            {
+                return null;
+            }
+            return location;
+        }
+    }
+
+    /**
+     * Copy the image data to the destination file by the channels, without going through a Java buffer
+     *
+     * @param file the audio file
+     * @param location the location returned by {@link #locate(File)}
+     * @param dest the image file to write
+     * @throws IOException on any I/O error
+     */
+    public static void transferTo(File file, Location location, File dest) throws IOException
+    {
+        try (RandomAccessFile source = new RandomAccessFile(file, "r");
+             RandomAccessFile target = new RandomAccessFile(dest, "rw"))
+        {
+            FileChannel sourceChannel = source.getChannel();
+            FileChannel targetChannel = target.getChannel();
+            targetChannel.truncate(0);
+            long position = location.offset;
+            long end = location.offset + location.length;
+            while (position < end)
+            {
+                long count = sourceChannel.transferTo(position, end - position, targetChannel);
+                if (count <= 0)
+                {
+                    throw new IOException("Unable to copy the artwork of " + file.getPath());
+                }
+                position += count;
+            }
+        }
+    }
+
+    private static int readInt(RandomAccessFile raf, long position) throws IOException
+    {
+        raf.seek(position);
+        return raf.readInt();
+    }
+
+    private static boolean isBetter(Location current, int pictureType)
+    {
+        return current == null || (current.pictureType != PictureTypes.DEFAULT_ID && pictureType == PictureTypes.DEFAULT_ID);
+    }
+
+    private static Location locateFlac(RandomAccessFile raf) throws IOException
+    {
+        long position = getId3TagSize(raf, 0);
+        byte[] marker = new byte[4];
+        raf.seek(position);
+        raf.readFully(marker);
+        if (!"fLaC".equals(new String(marker, StandardCharsets.ISO_8859_1)))
+        {
+            return null;
+        }
+        position += 4;
+        Location result = null;
+        boolean isLastBlock = false;
+        while (!isLastBlock && position + 4 <= raf.length())
+        {
+            int header = readInt(raf, position);
+            isLastBlock = (header & 0x80000000) != 0;
+            int blockType = (header >>> 24) & 0x7F;
+            int blockLength = header & 0xFFFFFF;
+            long dataStart = position + 4;
+            if (blockType == 6)
+            {
+                //Picture type, mime, description, width, height, colour depth, colours used, then the image
+                int pictureType = readInt(raf, dataStart);
+                int mimeLength = raf.readInt();
+                if (mimeLength < 0 || mimeLength > MAX_PICTURE_HEADER_SIZE)
+                {
+                    return null;
+                }
+                byte[] mime = new byte[mimeLength];
+                raf.readFully(mime);
+                int descriptionLength = raf.readInt();
+                if (descriptionLength < 0 || descriptionLength > MAX_PICTURE_HEADER_SIZE)
+                {
+                    return null;
+                }
+                raf.skipBytes(descriptionLength + 16);
+                long imageLength = raf.readInt() & 0xFFFFFFFFL;
+                String mimeType = new String(mime, StandardCharsets.ISO_8859_1);
+                //The full tag read may choose the linked image, so the located one may not be the same
+                if (isLinked(mimeType))
+                {
+                    return null;
+                }
+                if (isBetter(result, pictureType))
+                {
+                    result = new Location(raf.getFilePointer(), imageLength, mimeType, pictureType);
+                }
+            }
+            position = dataStart + blockLength;
+        }
+        return result;
+    }
+
+    private static boolean isLinked(String mimeType)
+    {
+        return "-->".equals(mimeType);
+    }
+
+    /**
+     * @return the full size of the ID3v2 tag at the position, 0 if there is none
+     */
+    private static long getId3TagSize(RandomAccessFile raf, long position) throws IOException
+    {
+        if (raf.length() < position + 10)
+        {
+            return 0;
+        }
+        byte[] header = new byte[10];
+        raf.seek(position);
+        raf.readFully(header);
+        if (header[0] != 'I' || header[1] != 'D' || header[2] != '3')
+        {
+            return 0;
+        }
+        byte[] size = new byte[]{header[6], header[7], header[8], header[9]};
+        boolean hasFooter = (header[5] & 0x10) != 0;
+        return 10 + ID3SyncSafeInteger.bufferToValue(size) + (hasFooter ? 10 : 0);
+    }
+
+    private static Location locateId3(RandomAccessFile raf, long tagStart) throws IOException
+    {
+        if (getId3TagSize(raf, tagStart) == 0)
+        {
+            return null;
+        }
+        raf.seek(tagStart + 3);
+        int majorVersion = raf.readByte();
+        raf.readByte();
+        int tagFlags = raf.readByte();
+        byte[] sizeBuffer = new byte[4];
+        raf.readFully(sizeBuffer);
+        long tagEnd = tagStart + 10 + ID3SyncSafeInteger.bufferToValue(sizeBuffer);
+        if (majorVersion < 2 || majorVersion > 4)
+        {
+            return null;
+        }
+        //Tag level unsynchronisation, the image bytes differ from the stored ones
+        if ((tagFlags & 0x80) != 0)
+        {
+            return null;
+        }
+        long position = tagStart + 10;
+        if (majorVersion > 2 && (tagFlags & 0x40) != 0)
+        {
+            int extendedHeaderSize = readInt(raf, position);
+            position += majorVersion == 3 ? 4 + extendedHeaderSize : ID3SyncSafeInteger.bufferToValue(toBytes(extendedHeaderSize));
+        }
+
+        int frameHeaderSize = majorVersion == 2 ? 6 : 10;
+        Location result = null;
+        while (position + frameHeaderSize <= tagEnd)
+        {
+            byte[] frameHeader = new byte[frameHeaderSize];
+            raf.seek(position);
+            raf.readFully(frameHeader);
+            //Padding
+            if (frameHeader[0] == 0)
+            {
+                break;
+            }
+            String frameId;
+            long frameSize;
+            int formatFlags = 0;
+            if (majorVersion == 2)
+            {
+                frameId = new String(frameHeader, 0, 3, StandardCharsets.ISO_8859_1);
+                frameSize = ((frameHeader[3] & 0xFF) << 16) | ((frameHeader[4] & 0xFF) << 8) | (frameHeader[5] & 0xFF);
+            }
+            else
+            {
+                frameId = new String(frameHeader, 0, 4, StandardCharsets.ISO_8859_1);
+                int size = ((frameHeader[4] & 0xFF) << 24) | ((frameHeader[5] & 0xFF) << 16) | ((frameHeader[6] & 0xFF) << 8) | (frameHeader[7] & 0xFF);
+                frameSize = majorVersion == 4 ? getId3v24FrameSize(raf, size, position + frameHeaderSize, tagEnd) : size & 0xFFFFFFFFL;
+                formatFlags = frameHeader[9] & 0xFF;
+                //The size can not be trusted, the following frames can not be found either
+                if (frameSize < 0)
+                {
+                    return null;
+                }
+            }
+            long bodyStart = position + frameHeaderSize;
+            long bodyEnd = bodyStart + frameSize;
+            if (frameSize <= 0 || bodyEnd > tagEnd)
+            {
+                break;
+            }
+            if ("APIC".equals(frameId) || "PIC".equals(frameId))
+            {
+                Location location = locateId3Picture(raf, majorVersion, formatFlags, bodyStart, bodyEnd);
+                //The full tag read may choose this picture, so the located one may not be the same
+                if (location == null)
+                {
+                    return null;
+                }
+                if (isBetter(result, location.pictureType))
+                {
+                    result = location;
+                }
+            }
+            position = bodyEnd;
+        }
+        return result;
+    }
+
+    /**
+     * A v2.4 frame size should be a sync safe integer, but some encoders such as iTunes write a plain integer.
+     * The same as ID3v24Frame.checkIfFrameSizeThatIsNotSyncSafe, the size that ends in front of a valid frame
+     * header or the padding is used.
+     *
+     * @return the frame size, -1 if neither size ends in front of a valid frame header
+     */
+    private static long getId3v24FrameSize(RandomAccessFile raf, int size, long bodyStart, long tagEnd) throws IOException
+    {
+        long nonSyncSafeSize = size & 0xFFFFFFFFL;
+        //A byte with bit 7 set is never sync safe
+        if ((size & 0x80808080) != 0)
+        {
+            return nonSyncSafeSize;
+        }
+        long syncSafeSize = ID3SyncSafeInteger.bufferToValue(toBytes(size));
+        if (syncSafeSize <= ID3SyncSafeInteger.MAX_SAFE_SIZE || isFrameEnd(raf, bodyStart + syncSafeSize, tagEnd))
+        {
+            return syncSafeSize;
+        }
+        if (bodyStart + nonSyncSafeSize <= tagEnd && isFrameEnd(raf, bodyStart + nonSyncSafeSize, tagEnd))
+        {
+            return nonSyncSafeSize;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if a frame header, the padding or the end of the tag is at the position
+     */
+    private static boolean isFrameEnd(RandomAccessFile raf, long position, long tagEnd) throws IOException
+    {
+        if (position > tagEnd)
+        {
+            return false;
+        }
+        if (position + 4 > tagEnd)
+        {
+            return true;
+        }
+        byte[] frameId = new byte[4];
+        raf.seek(position);
+        raf.readFully(frameId);
+        boolean isPadding = true;
+        boolean isValidId = true;
+        for (byte b : frameId)
+        {
+            isPadding &= b == 0;
+            isValidId &= (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9');
+        }
+        return isPadding || isValidId;
+    }
+
+    private static byte[] toBytes(int value)
+    {
+        return ByteBuffer.allocate(4).putInt(value).array();
+    }
+
+    private static Location locateId3Picture(RandomAccessFile raf, int majorVersion, int formatFlags, long bodyStart, long bodyEnd) throws IOException
+    {
+        long position = bodyStart;
+        if (majorVersion == 3)
+        {
+            //Compression, encryption
+            if ((formatFlags & 0xC0) != 0)
+            {
+                return null;
+            }
+            //Grouping identity
+            if ((formatFlags & 0x20) != 0)
+            {
+                position += 1;
+            }
+        }
+        else if (majorVersion == 4)
+        {
+            //Compression, encryption, unsynchronisation
+            if ((formatFlags & 0x0E) != 0)
+            {
+                return null;
+            }
+            //Grouping identity, data length indicator
+            if ((formatFlags & 0x40) != 0)
+            {
+                position += 1;
+            }
+            if ((formatFlags & 0x01) != 0)
+            {
+                position += 4;
+            }
+        }
+
+        int headerLength = (int) Math.min(MAX_PICTURE_HEADER_SIZE, bodyEnd - position);
+        if (headerLength <= 0)
+        {
+            return null;
+        }
+        byte[] header = new byte[headerLength];
+        raf.seek(position);
+        raf.readFully(header);
+        int textEncoding = header[0];
+        int index = 1;
+        String mimeType;
+        if (majorVersion == 2)
+        {
+            if (headerLength < 5)
+            {
+                return null;
+            }
+            String format = new String(header, 1, 3, StandardCharsets.ISO_8859_1);
+            if (isLinked(format))
+            {
+                return null;
+            }
+            mimeType = ImageFormats.getMimeTypeForFormat(format);
+            index = 4;
+        }
+        else
+        {
+            int mimeEnd = index;
+            while (mimeEnd < headerLength && header[mimeEnd] != 0)
+            {
+                mimeEnd++;
+            }
+            if (mimeEnd >= headerLength)
+            {
+                return null;
+            }
+            mimeType = new String(header, index, mimeEnd - index, StandardCharsets.ISO_8859_1);
+            if (isLinked(mimeType))
+            {
+                return null;
+            }
+            index = mimeEnd + 1;
+        }
+        if (index >= headerLength)
+        {
+            return null;
+        }
+        int pictureType = header[index] & 0xFF;
+        index++;
+
+        //Description, terminated by a single null for ISO-8859-1 and UTF-8, by a double null for UTF-16
+        boolean isWideText = textEncoding == 1 || textEncoding == 2;
+        if (isWideText)
+        {
+            while (index + 1 < headerLength && (header[index] != 0 || header[index + 1] != 0))
+            {
+                index += 2;
+            }
+            index += 2;
+        }
+        else
+        {
+            while (index < headerLength && header[index] != 0)
+            {
+                index++;
+            }
+            index += 1;
+        }
+        if (index > headerLength)
+        {
+            return null;
+        }
+        long imageStart = position + index;
+        return new Location(imageStart, bodyEnd - imageStart, mimeType, pictureType);
+    }
+
+    private static final String[] MP4_COVER_PATH = {"moov", "udta", "meta", "ilst", "covr", "data"};
+
+    private static Location locateMp4(RandomAccessFile raf, long start, long end, int depth) throws IOException
+    {
+        long position = start;
+        byte[] type = new byte[4];
+        while (position + 8 <= end)
+        {
+            raf.seek(position);
+            long atomSize = raf.readInt() & 0xFFFFFFFFL;
+            raf.readFully(type);
+            int headerSize = 8;
+            if (atomSize == 1)
+            {
+                atomSize = raf.readLong();
+                headerSize = 16;
+            }
+            else if (atomSize == 0)
+            {
+                atomSize = end - position;
+            }
+            if (atomSize < headerSize || position + atomSize > end)
+            {
+                return null;
+            }
+            String atomType = new String(type, StandardCharsets.ISO_8859_1);
+            if (atomType.equals(MP4_COVER_PATH[depth]))
+            {
+                long childStart = position + headerSize;
+                long atomEnd = position + atomSize;
+                if (depth == MP4_COVER_PATH.length - 1)
+                {
+                    //Type indicator and locale
+                    int dataType = readInt(raf, childStart) & 0xFFFFFF;
+                    long imageStart = childStart + 8;
+                    return new Location(imageStart, atomEnd - imageStart, getMp4MimeType(raf, dataType, imageStart, atomEnd), PictureTypes.DEFAULT_ID);
+                }
+                if ("meta".equals(atomType))
+                {
+                    //meta is a full atom (version and flags) except in some QuickTime files
+                    raf.seek(childStart + 4);
+                    raf.readFully(type);
+                    if (!"hdlr".equals(new String(type, StandardCharsets.ISO_8859_1)))
+                    {
+                        childStart += 4;
+                    }
+                }
+                return locateMp4(raf, childStart, atomEnd, depth + 1);
+            }
+            position += atomSize;
+        }
+        return null;
+    }
+
+    private static String getMp4MimeType(RandomAccessFile raf, int dataType, long imageStart, long imageEnd) throws IOException
+    {
+        switch (dataType)
+        {
+            case 13:
+                return ImageFormats.MIME_TYPE_JPEG;
+            case 14:
+                return ImageFormats.MIME_TYPE_PNG;
+            case 27:
+                return ImageFormats.MIME_TYPE_BMP;
+            default:
+                byte[] signature = new byte[(int) Math.min(16, imageEnd - imageStart)];
+                raf.seek(imageStart);
+                raf.readFully(signature);
+                return ImageFormats.getMimeTypeForBinarySignature(signature);
+        }
+    }
+}
@@ -66,6 +66,11 @@ public class AudioFile
      */
     protected String extension;
 
+    /**
+     * The options the tag was read with
+     */
+    protected ReadOptions readOptions = ReadOptions.ALL;
+
     public AudioFile()
     {
 
@@ -102,6 +107,16 @@ public class AudioFile
         this.tag = tag;
     }
 
+    public ReadOptions getReadOptions()
+    {
+        return readOptions;
+    }
+
+    void setReadOptions(ReadOptions readOptions)
+    {
+        this.readOptions = readOptions;
+    }
+
     /**
      * <p>Write the tag contained in this AudioFile in the actual file on the disk, this is the same as calling the <code>AudioFileIO.write(this)</code> method.
      *
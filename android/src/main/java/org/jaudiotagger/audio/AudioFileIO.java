@@ -192,6 +192,114 @@ public class AudioFileIO
       return getDefaultAudioFileIO().readFile(f);
   }
 
+  /**
+   *
+   * Read the tag contained in the given file, only the fields selected by the read options are decoded.
+   *
+   *
+   * @param f The file to read.
+   * @param options The fields to read, an AudioFile not read with {@link ReadOptions#FIELD_ALL} can not be committed.
+   * @return The AudioFile with the file tag and the file encoding info.
+   * @throws org.jaudiotagger.audio.exceptions.CannotReadException If the file could not be read, the extension wasn't
+   *                             recognized, or an IO error occurred during the read.
+   * @throws org.jaudiotagger.tag.TagException
+   * @throws org.jaudiotagger.audio.exceptions.ReadOnlyFileException
+   * @throws java.io.IOException
+   * @throws org.jaudiotagger.audio.exceptions.InvalidAudioFrameException
+   */
+  public static AudioFile read(File f, ReadOptions options)
+          throws CannotReadException, IOException, TagException, ReadOnlyFileException, InvalidAudioFrameException
+  {
+      ReadOptions.setCurrent(options);
+      try
+      {
+          AudioFile audioFile = getDefaultAudioFileIO().readFile(f);
+          audioFile.setReadOptions(options);
+          return audioFile;
+      }
+      finally
+      {
+          ReadOptions.setCurrent(null);
+      }
+  }
+
+  /**
+   *
+   * Read the tag from a channel source, for the files that can not be opened by a path.
+   *
+   *
+   * @param f The file, only used for its name and extension.
+   * @param source The source of the file content.
+   * @param options The fields to read.
+   * @return The AudioFile with the file tag and the file encoding info.
+   * @throws org.jaudiotagger.audio.exceptions.CannotReadException If the file could not be read, or the reader
+   *                             of the extension does not support a channel source.
+   * @throws java.io.IOException
+   */
+  public static AudioFile read(File f, ChannelSource source, ReadOptions options)
+          throws CannotReadException, IOException
+  {
+      ReadOptions.setCurrent(options);
+      try
+      {
+          AudioFile audioFile = getDefaultAudioFileIO().readFile(f, source);
+          audioFile.setReadOptions(options);
+          return audioFile;
+      }
+      finally
+      {
+          ReadOptions.setCurrent(null);
+      }
+  }
+
+  /**
+   *
+   * Read only the audio header from a channel source.
+   *
+   *
+   * @param f The file, only used for its name and extension.
+   * @param source The source of the file content.
+   * @return The encoding info of the file.
+   * @throws org.jaudiotagger.audio.exceptions.CannotReadException If the file could not be read, or the reader
+   *                             of the extension does not support a channel source.
+   * @throws java.io.IOException
+   */
+  public static AudioHeader readAudioHeader(File f, ChannelSource source)
+          throws CannotReadException, IOException
+  {
+      return getDefaultAudioFileIO().getChannelSourceReader(f).readAudioHeader(f, source);
+  }
+
+  /**
+   * @param f The file, only used for its extension.
+   * @return true if the file can be read from a {@link ChannelSource}
+   */
+  public static boolean isChannelSourceSupported(File f)
+  {
+      AudioFileReader afr = getDefaultAudioFileIO().readers.get(Utils.getExtension(f));
+      return afr instanceof AudioFileReader2 && ((AudioFileReader2) afr).isChannelSourceSupported();
+  }
+
+  /**
+   *
+   * Read only the audio header of the given file, the tag is neither parsed nor created.
+   *
+   *
+   * @param f The file to read.
+   * @return The encoding info of the file.
+   * @throws org.jaudiotagger.audio.exceptions.CannotReadException If the file could not be read, the extension wasn't
+   *                             recognized, or an IO error occurred during the read.
+   * @throws org.jaudiotagger.tag.TagException
+   * @throws org.jaudiotagger.audio.exceptions.ReadOnlyFileException
+   * @throws java.io.IOException
+   * @throws org.jaudiotagger.audio.exceptions.InvalidAudioFrameException
+   */
+  public static AudioHeader readAudioHeader(File f)
+          throws CannotReadException, IOException, TagException, ReadOnlyFileException, InvalidAudioFrameException
+  {
+      return getDefaultAudioFileIO().readFileAudioHeader(f);
+  }
+
     /**
      *
      * Write the tag contained in the audioFile in the actual file on the disk.
@@ -358,6 +466,65 @@ public class AudioFileIO
         return tempFile;
     }
 
+    private AudioFileReader2 getChannelSourceReader(File f) throws CannotReadException
+    {
+        String ext = Utils.getExtension(f);
+
+        AudioFileReader afr = readers.get(ext);
+        if (!(afr instanceof AudioFileReader2) || !((AudioFileReader2) afr).isChannelSourceSupported())
+        {
+            throw new CannotReadException(ErrorMessage.NO_READER_FOR_THIS_FORMAT.getMsg(ext));
+        }
+        return (AudioFileReader2) afr;
+    }
+
+    /**
+     *
+     * Read the tag from a channel source.
+     *
+     *
+     * @param f The file, only used for its name and extension.
+     * @param source The source of the file content.
+     * @return The AudioFile with the file tag and the file encoding info.
+     * @throws org.jaudiotagger.audio.exceptions.CannotReadException If the file could not be read, or the reader
+     *                             of the extension does not support a channel source.
+     * @throws java.io.IOException
+     */
+    public AudioFile readFile(File f, ChannelSource source)
+            throws CannotReadException, IOException
+    {
+        AudioFile tempFile = getChannelSourceReader(f).read(f, source);
+        tempFile.setExt(Utils.getExtension(f));
+        return tempFile;
+    }
+
+    /**
+     *
+     * Read only the audio header of the given file.
+     *
+     *
+     * @param f The file to read.
+     * @return The encoding info of the file.
+     * @throws org.jaudiotagger.audio.exceptions.CannotReadException If the file could not be read, the extension wasn't
+     *                             recognized, or an IO error occurred during the read.
+     * @throws org.jaudiotagger.tag.TagException
+     * @throws org.jaudiotagger.audio.exceptions.ReadOnlyFileException
+     * @throws java.io.IOException
+     * @throws org.jaudiotagger.audio.exceptions.InvalidAudioFrameException
+     */
+    public AudioHeader readFileAudioHeader(File f)
+            throws CannotReadException, IOException, TagException, ReadOnlyFileException, InvalidAudioFrameException
+    {
+        String ext = Utils.getExtension(f);
+
+        AudioFileReader afr = readers.get(ext);
+        if (afr == null)
+        {
+            throw new CannotReadException(ErrorMessage.NO_READER_FOR_THIS_FORMAT.getMsg(ext));
+        }
+        return afr.readAudioHeader(f);
+    }
+
     /**
     *
     * Read the tag contained in the given file.
@@ -461,6 +628,10 @@ public class AudioFileIO
      */
     public void writeFile(AudioFile f, String targetPath) throws CannotWriteException
     {
+        if (!f.getReadOptions().isFullRead())
+        {
+            throw new CannotWriteException("Unable to write " + f.getFile() + ", the tag was read with a field mask");
+        }
     	String ext = f.getExt();
 
         if (targetPath != null && !targetPath.isEmpty())
@@ -0,0 +1,154 @@
+package org.jaudiotagger.audio;
+
+import org.jaudiotagger.tag.id3.ID3v22Frames;
+import org.jaudiotagger.tag.id3.ID3v24Frames;
+import org.jaudiotagger.tag.mp4.Mp4FieldKey;
+import org.jaudiotagger.tag.vorbiscomment.VorbisCommentFieldKey;
+
+/**
+ * Options of a single read.
+ *
+ * <p>The field mask selects the expensive fields the caller actually needs, the readers skip the frames, blocks
+ * and atoms of the other fields by their length without decoding them. The options are only visible to the
+ * readers of the thread running {@link AudioFileIO#read(java.io.File, ReadOptions)}.
+ *
+ * <p>Only the FLAC PICTURE blocks are skipped in the file itself. The ID3v2 tag, the MP4 {@code moov} box and
+ * the Vorbis comment are still read into one buffer as a whole and the unwanted frames are skipped inside it,
+ * so their bytes are read but no field objects or image copies are created for them.
+ *
+ * <p>A file read with a field mask holds an incomplete tag, so it can not be committed.
+ */
+public class ReadOptions
+{
+    /**
+     * Embedded images (ID3 APIC/PIC, FLAC PICTURE, Vorbis METADATA_BLOCK_PICTURE/COVERART, MP4 covr)
+     */
+    public static final int FIELD_ARTWORK = 1;
+
+    /**
+     * Lyrics (ID3 USLT/SYLT, Vorbis LYRICS/UNSYNCEDLYRICS, MP4 ©lyr)
+     */
+    public static final int FIELD_LYRICS = 1 << 1;
+
+    public static final int FIELD_ALL = FIELD_ARTWORK | FIELD_LYRICS;
+
+    /**
+     * Only the text fields, such as title, artist and album
+     */
+    public static final int FIELD_NONE = 0;
+
+    public static final ReadOptions ALL = new ReadOptions(FIELD_ALL);
+
+    /**
+     * Non standard key used by some taggers (foobar2000) for the lyrics
+     */
+    private static final String UNSYNCED_LYRICS_VORBIS_KEY = "UNSYNCEDLYRICS";
+
+    private static final ThreadLocal<ReadOptions> current = new ThreadLocal<ReadOptions>();
+
+    private final int fieldMask;
+
+    public ReadOptions(int fieldMask)
+    {
+        this.fieldMask = fieldMask;
+    }
+
+    public int getFieldMask()
+    {
+        return fieldMask;
+    }
+
+    public boolean isReadField(int field)
+    {
+        return (fieldMask & field) == field;
+    }
+
+    public boolean isFullRead()
+    {
+        return isReadField(FIELD_ALL);
+    }
+
+    /**
+     * @return the options of the read running on this thread
+     */
+    public static ReadOptions getCurrent()
+    {
+        ReadOptions options = current.get();
+        return options == null ? ALL : options;
+    }
+
+    static void setCurrent(ReadOptions options)
+    {
+        if (options == null)
+        {
+            current.remove();
+        }
+        else
+        {
+            current.set(options);
+        }
+    }
+
+    /**
+     * @param identifier ID3v2.2, v2.3 or v2.4 frame identifier
+     * @return true if the frame body should not be read
+     */
+    public boolean isSkipId3Frame(String identifier)
+    {
+        if (!isReadField(FIELD_ARTWORK))
+        {
+            if (ID3v24Frames.FRAME_ID_ATTACHED_PICTURE.equals(identifier) || ID3v22Frames.FRAME_ID_V2_ATTACHED_PICTURE.equals(identifier))
+            {
+                return true;
+            }
+        }
+        if (!isReadField(FIELD_LYRICS))
+        {
+            if (ID3v24Frames.FRAME_ID_UNSYNC_LYRICS.equals(identifier) || ID3v24Frames.FRAME_ID_SYNC_LYRIC.equals(identifier)
+                    || ID3v22Frames.FRAME_ID_V2_UNSYNC_LYRICS.equals(identifier) || ID3v22Frames.FRAME_ID_V2_SYNC_LYRIC.equals(identifier))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param key Vorbis comment field name
+     * @return true if the comment should not be read
+     */
+    public boolean isSkipVorbisField(String key)
+    {
+        if (!isReadField(FIELD_ARTWORK))
+        {
+            if (VorbisCommentFieldKey.METADATA_BLOCK_PICTURE.getFieldName().equalsIgnoreCase(key)
+                    || VorbisCommentFieldKey.COVERART.getFieldName().equalsIgnoreCase(key)
+                    || VorbisCommentFieldKey.COVERARTMIME.getFieldName().equalsIgnoreCase(key))
+            {
+                return true;
+            }
+        }
+        if (!isReadField(FIELD_LYRICS))
+        {
+            if (VorbisCommentFieldKey.LYRICS.getFieldName().equalsIgnoreCase(key)
+                    || UNSYNCED_LYRICS_VORBIS_KEY.equalsIgnoreCase(key))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param id MP4 atom identifier within ilst
+     * @return true if the atom should not be read
+     */
+    public boolean isSkipMp4Atom(String id)
+    {
+        if (!isReadField(FIELD_ARTWORK) && Mp4FieldKey.ARTWORK.getFieldName().equals(id))
+        {
+            return true;
+        }
+        return !isReadField(FIELD_LYRICS) && Mp4FieldKey.LYRICS.getFieldName().equals(id);
+    }
+}
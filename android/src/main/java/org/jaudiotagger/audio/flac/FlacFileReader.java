@@ -20,10 +20,12 @@ package org.jaudiotagger.audio.flac;
 
 import org.jaudiotagger.audio.exceptions.CannotReadException;
 import org.jaudiotagger.audio.generic.AudioFileReader2;
+import org.jaudiotagger.audio.generic.ChannelSource;
 import org.jaudiotagger.audio.generic.GenericAudioHeader;
 import org.jaudiotagger.tag.Tag;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 
 /**
@@ -44,4 +46,28 @@ public class FlacFileReader extends AudioFileReader2
     {
         return tr.read(path);
     }
+
+    @Override
+    public boolean isChannelSourceSupported()
+    {
+        return true;
+    }
+
+    @Override
+    protected GenericAudioHeader getEncodingInfo(ChannelSource source, Path path) throws CannotReadException, IOException
+    {
+        try (FileChannel fc = source.open())
+        {
+            return ir.read(fc, path);
+        }
+    }
+
+    @Override
+    protected Tag getTag(ChannelSource source, Path path) throws CannotReadException, IOException
+    {
+        try (FileChannel fc = source.open())
+        {
+            return tr.read(fc, path);
+        }
+    }
 }
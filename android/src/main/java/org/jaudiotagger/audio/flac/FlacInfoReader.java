@@ -46,64 +46,75 @@ public class FlacInfoReader
         logger.config(path + ":start");
         try(FileChannel fc = FileChannel.open(path))
         {
-            FlacStreamReader flacStream = new FlacStreamReader(fc, path.toString() + " ");
-            flacStream.findStream();
+            return read(fc, path);
+        }
+    }
 
-            MetadataBlockDataStreamInfo mbdsi = null;
-            boolean isLastBlock = false;
+    /**
+     * Read the audio header from a channel positioned at the start of the file
+     *
+     * @param fc the file channel
+     * @param path the file path, only used for the logging
+     */
+    public FlacAudioHeader read(FileChannel fc, Path path) throws CannotReadException, IOException
+    {
+        FlacStreamReader flacStream = new FlacStreamReader(fc, path.toString() + " ");
+        flacStream.findStream();
 
-            //Search for StreamInfo Block, but even after we found it we still have to continue through all
-            //the metadata blocks so that we can find the start of the audio frames which we need to calculate
-            //the bitrate
-            while (isLastBlock==false)
+        MetadataBlockDataStreamInfo mbdsi = null;
+        boolean isLastBlock = false;
+
+        //Search for StreamInfo Block, but even after we found it we still have to continue through all
+        //the metadata blocks so that we can find the start of the audio frames which we need to calculate
+        //the bitrate
+        while (isLastBlock==false)
+        {
+            MetadataBlockHeader mbh = MetadataBlockHeader.readHeader(fc);
+            logger.info(path.toString() + " "  + mbh.toString());
+            if (mbh.getBlockType() == BlockType.STREAMINFO)
             {
-                MetadataBlockHeader mbh = MetadataBlockHeader.readHeader(fc);
-                logger.info(path.toString() + " "  + mbh.toString());
-                if (mbh.getBlockType() == BlockType.STREAMINFO)
+                //See #253:MetadataBlockDataStreamInfo exception when bytes length is 0
+                if(mbh.getDataLength()==0)
                 {
-                    //See #253:MetadataBlockDataStreamInfo exception when bytes length is 0
-                    if(mbh.getDataLength()==0)
-                    {
-                        throw new CannotReadException(path + ":FLAC StreamInfo has zeo data length");
-                    }
-
-                    mbdsi = new MetadataBlockDataStreamInfo(mbh, fc);
-                    if (!mbdsi.isValid())
-                    {
-                        throw new CannotReadException(path + ":FLAC StreamInfo not valid");
-                    }
+                    throw new CannotReadException(path + ":FLAC StreamInfo has zeo data length");
                 }
-                else
+
+                mbdsi = new MetadataBlockDataStreamInfo(mbh, fc);
+                if (!mbdsi.isValid())
                 {
-                    fc.position(fc.position() + mbh.getDataLength());
+                    throw new CannotReadException(path + ":FLAC StreamInfo not valid");
                 }
-                isLastBlock = mbh.isLastBlock();
             }
-
-            //Audio continues from this point to end of file (normally - TODO might need to allow for an ID3v1 tag at file end ?)
-            long streamStart = fc.position();
-
-            if (mbdsi == null)
+            else
             {
-                throw new CannotReadException(path + ":Unable to find Flac StreamInfo");
+                fc.position(fc.position() + mbh.getDataLength());
             }
+            isLastBlock = mbh.isLastBlock();
+        }
+
+        //Audio continues from this point to end of file (normally - TODO might need to allow for an ID3v1 tag at file end ?)
+        long streamStart = fc.position();
 
-            FlacAudioHeader info = new FlacAudioHeader();
-            info.setNoOfSamples(mbdsi.getNoOfSamples());
-            info.setPreciseLength(mbdsi.getPreciseLength());
-            info.setChannelNumber(mbdsi.getNoOfChannels());
-            info.setSamplingRate(mbdsi.getSamplingRate());
-            info.setBitsPerSample(mbdsi.getBitsPerSample());
-            info.setEncodingType(mbdsi.getEncodingType());
-            info.setFormat(SupportedFileFormat.FLAC.getDisplayName());
-            info.setLossless(true);
-            info.setMd5(mbdsi.getMD5Signature());
-            info.setAudioDataLength(fc.size() - streamStart);
-            info.setAudioDataStartPosition(streamStart);
-            info.setAudioDataEndPosition(fc.size());
-            info.setBitRate(computeBitrate(info.getAudioDataLength(), mbdsi.getPreciseLength()));
-            return info;
+        if (mbdsi == null)
+        {
+            throw new CannotReadException(path + ":Unable to find Flac StreamInfo");
         }
+
+        FlacAudioHeader info = new FlacAudioHeader();
+        info.setNoOfSamples(mbdsi.getNoOfSamples());
+        info.setPreciseLength(mbdsi.getPreciseLength());
+        info.setChannelNumber(mbdsi.getNoOfChannels());
+        info.setSamplingRate(mbdsi.getSamplingRate());
+        info.setBitsPerSample(mbdsi.getBitsPerSample());
+        info.setEncodingType(mbdsi.getEncodingType());
+        info.setFormat(SupportedFileFormat.FLAC.getDisplayName());
+        info.setLossless(true);
+        info.setMd5(mbdsi.getMD5Signature());
+        info.setAudioDataLength(fc.size() - streamStart);
+        info.setAudioDataStartPosition(streamStart);
+        info.setAudioDataEndPosition(fc.size());
+        info.setBitRate(computeBitrate(info.getAudioDataLength(), mbdsi.getPreciseLength()));
+        return info;
     }
 
     private int computeBitrate(long size, float length )
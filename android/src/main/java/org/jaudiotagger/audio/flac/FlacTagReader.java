@@ -18,6 +18,7 @@
  */
 package org.jaudiotagger.audio.flac;
 
+import org.jaudiotagger.audio.ReadOptions;
 import org.jaudiotagger.audio.exceptions.CannotReadException;
 import org.jaudiotagger.audio.flac.metadatablock.MetadataBlockDataPicture;
 import org.jaudiotagger.audio.flac.metadatablock.MetadataBlockHeader;
@@ -51,101 +52,119 @@ public class FlacTagReader
     {
         try (FileChannel fc = FileChannel.open(path))
         {
-            FlacStreamReader flacStream = new FlacStreamReader(fc, path.toString() + " ");
-            flacStream.findStream();
-
-            //Hold the metadata
-            VorbisCommentTag tag = null;
-            List<MetadataBlockDataPicture> images = new ArrayList<MetadataBlockDataPicture>();
-
-            //Seems like we have a valid stream
-            boolean isLastBlock = false;
-            while (!isLastBlock)
-            {
-                if (logger.isLoggable(Level.CONFIG))
-                {
-                    logger.config(path + " Looking for MetaBlockHeader at:" + fc.position());
-                }
-
-                //Read the header
-                MetadataBlockHeader mbh = MetadataBlockHeader.readHeader(fc);
-                if (mbh == null)
-                {
-                    break;
-                }
+            return read(fc, path);
+        }
+    }
 
-                if (logger.isLoggable(Level.CONFIG))
-                {
-                    logger.config(path + " Reading MetadataBlockHeader:" + mbh.toString() + " ending at " + fc.position());
-                }
+    /**
+     * Read the tag from a channel positioned at the start of the file
+     *
+     * @param fc the file channel
+     * @param path the file path, only used for the logging
+     */
+    public FlacTag read(FileChannel fc, Path path) throws CannotReadException, IOException
+    {
+        FlacStreamReader flacStream = new FlacStreamReader(fc, path.toString() + " ");
+        flacStream.findStream();
 
-                //Is it one containing some sort of metadata, therefore interested in it?
+        ReadOptions readOptions = ReadOptions.getCurrent();
 
-                //JAUDIOTAGGER-466:CBlocktype can be null
-                if (mbh.getBlockType() != null)
-                {
-                    switch (mbh.getBlockType())
-                    {
-                        //We got a vorbiscomment comment block, parse it
-                        case VORBIS_COMMENT:
-                            ByteBuffer commentHeaderRawPacket = ByteBuffer.allocate(mbh.getDataLength());
-                            fc.read(commentHeaderRawPacket);
-                            tag = vorbisCommentReader.read(commentHeaderRawPacket.array(), false, path);
-                            break;
+        //Hold the metadata
+        VorbisCommentTag tag = null;
+        List<MetadataBlockDataPicture> images = new ArrayList<MetadataBlockDataPicture>();
 
-                        case PICTURE:
-                            try
-                            {
-                                MetadataBlockDataPicture mbdp = new MetadataBlockDataPicture(mbh, fc);
-                                images.add(mbdp);
-                            }
-                            catch (IOException ioe)
-                            {
-                                logger.warning(path + "Unable to read picture metablock, ignoring:" + ioe.getMessage());
-                            }
-                            catch (InvalidFrameException ive)
-                            {
-                                logger.warning(path + "Unable to read picture metablock, ignoring" + ive.getMessage());
-                            }
+        //Seems like we have a valid stream
+        boolean isLastBlock = false;
+        while (!isLastBlock)
+        {
+            if (logger.isLoggable(Level.CONFIG))
+            {
+                logger.config(path + " Looking for MetaBlockHeader at:" + fc.position());
+            }
 
-                            break;
+            //Read the header
+            MetadataBlockHeader mbh = MetadataBlockHeader.readHeader(fc);
+            if (mbh == null)
+            {
+                break;
+            }
 
+            if (logger.isLoggable(Level.CONFIG))
+            {
+                logger.config(path + " Reading MetadataBlockHeader:" + mbh.toString() + " ending at " + fc.position());
+            }
 
-                        case SEEKTABLE:
-                            try
-                            {
-                                long pos = fc.position();
-                                fc.position(pos + mbh.getDataLength());
-                            }
-                            catch (IOException ioe)
-                            {
-                                logger.warning(path + "Unable to readseek metablock, ignoring:" + ioe.getMessage());
-                            }
-                            break;
+            //Is it one containing some sort of metadata, therefore interested in it?
 
-                        //This is not a metadata block we are interested in so we skip to next block
-                        default:
-                            if (logger.isLoggable(Level.CONFIG))
-                            {
-                                logger.config(path + "Ignoring MetadataBlock:" + mbh.getBlockType());
-                            }
+            //JAUDIOTAGGER-466:CBlocktype can be null
+            if (mbh.getBlockType() != null)
+            {
+                switch (mbh.getBlockType())
+                {
+                    //We got a vorbiscomment comment block, parse it
+                    case VORBIS_COMMENT:
+                        ByteBuffer commentHeaderRawPacket = ByteBuffer.allocate(mbh.getDataLength());
+                        fc.read(commentHeaderRawPacket);
+                        tag = vorbisCommentReader.read(commentHeaderRawPacket.array(), false, path);
+                        break;
+
+                    case PICTURE:
+                        if (!readOptions.isReadField(ReadOptions.FIELD_ARTWORK))
+                        {
                             fc.position(fc.position() + mbh.getDataLength());
                             break;
-                    }
+                        }
+                        try
+                        {
+                            MetadataBlockDataPicture mbdp = new MetadataBlockDataPicture(mbh, fc);
+                            images.add(mbdp);
+                        }
+                        catch (IOException ioe)
+                        {
+                            logger.warning(path + "Unable to read picture metablock, ignoring:" + ioe.getMessage());
+                        }
+                        catch (InvalidFrameException ive)
+                        {
+                            logger.warning(path + "Unable to read picture metablock, ignoring" + ive.getMessage());
+                        }
+
+                        break;
+
+
+                    case SEEKTABLE:
+                        try
+                        {
+                            long pos = fc.position();
+                            fc.position(pos + mbh.getDataLength());
+                        }
+                        catch (IOException ioe)
+                        {
+                            logger.warning(path + "Unable to readseek metablock, ignoring:" + ioe.getMessage());
+                        }
+                        break;
+
+                    //This is not a metadata block we are interested in so we skip to next block
+                    default:
+                        if (logger.isLoggable(Level.CONFIG))
+                        {
+                            logger.config(path + "Ignoring MetadataBlock:" + mbh.getBlockType());
+                        }
+                        fc.position(fc.position() + mbh.getDataLength());
+                        break;
                 }
-                isLastBlock = mbh.isLastBlock();
             }
-            logger.config("Audio should start at:"+ Hex.asHex(fc.position()));
+            isLastBlock = mbh.isLastBlock();
+        }
+        logger.config("Audio should start at:"+ Hex.asHex(fc.position()));
 
-            //Note there may not be either a tag or any images, no problem this is valid however to make it easier we
-            //just initialize Flac with an empty VorbisTag
-            if (tag == null)
-            {
-                tag = VorbisCommentTag.createNewTag();
-            }
-            FlacTag flacTag = new FlacTag(tag, images);
-            return flacTag;
+        //Note there may not be either a tag or any images, no problem this is valid however to make it easier we
+        //just initialize Flac with an empty VorbisTag
+        if (tag == null)
+        {
+            tag = VorbisCommentTag.createNewTag();
         }
+        FlacTag flacTag = new FlacTag(tag, images);
+        return flacTag;
     }
 }
 
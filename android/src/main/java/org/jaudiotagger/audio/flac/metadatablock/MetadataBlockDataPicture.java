@@ -57,6 +57,8 @@ public class MetadataBlockDataPicture implements MetadataBlockData, TagField
     private int indexedColouredCount;
     private int lengthOfPictureInBytes;
     private byte[] imageData;
+    //Encoded once, the same picture can be written to many files
+    private volatile ByteBuffer bytes;
 
     // Logger Object
     public static Logger logger = Logger.getLogger("org.jaudiotagger.audio.flac.MetadataBlockDataPicture");
@@ -184,7 +186,21 @@ public class MetadataBlockDataPicture implements MetadataBlockData, TagField
         return new String(tempbuffer, charset);
     }
 
+    /**
+     * @return the encoded block data, every call gets its own view of the same bytes
+     */
     public ByteBuffer getBytes()
+    {
+        ByteBuffer bytes = this.bytes;
+        if (bytes == null)
+        {
+            bytes = createBytes();
+            this.bytes = bytes;
+        }
+        return bytes.duplicate();
+    }
+
+    private ByteBuffer createBytes()
     {
         try
         {
@@ -19,6 +19,7 @@
 package org.jaudiotagger.audio.generic;
 
 import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioHeader;
 import org.jaudiotagger.audio.exceptions.CannotReadException;
 import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
 import org.jaudiotagger.audio.exceptions.NoReadPermissionsException;
@@ -75,6 +76,58 @@ public abstract class AudioFileReader
       */
     protected abstract Tag getTag(RandomAccessFile raf) throws CannotReadException, IOException;
 
+    /**
+     * Reads only the encoding infos of the given file, the tag is neither parsed nor created.
+     *
+     * @param f The file to read
+     * @return the audio header of the file
+     * @throws CannotReadException If anything went bad during the read of this file
+     */
+    public AudioHeader readAudioHeader(File f) throws CannotReadException, IOException, TagException, ReadOnlyFileException, InvalidAudioFrameException
+    {
+        checkReadable(f);
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r"))
+        {
+            return getEncodingInfo(raf);
+        }
+        catch (CannotReadException cre)
+        {
+            throw cre;
+        }
+        catch (Exception e)
+        {
+            logger.log(Level.SEVERE, ErrorMessage.GENERAL_READ.getMsg(f.getAbsolutePath()),e);
+            throw new CannotReadException(f.getAbsolutePath()+":" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks that the file exists, can be read and is large enough to hold some audio
+     *
+     * @param f The file to check
+     * @throws CannotReadException If the file can not be read as an audio file
+     */
+    protected void checkReadable(File f) throws CannotReadException, IOException
+    {
+        if (!Files.isReadable(f.toPath()))
+        {
+            if(!Files.exists(f.toPath()))
+            {
+                throw new FileNotFoundException(ErrorMessage.UNABLE_TO_FIND_FILE.getMsg(f.toPath()));
+            }
+            else
+            {
+                logger.warning(Permissions.displayPermissions(f.toPath()));
+                throw new NoReadPermissionsException(ErrorMessage.GENERAL_READ_FAILED_DO_NOT_HAVE_PERMISSION_TO_READ_FILE.getMsg(f.toPath()));
+            }
+        }
+
+        if (f.length() <= MINIMUM_SIZE_FOR_VALID_AUDIO_FILE)
+        {
+            throw new CannotReadException(ErrorMessage.GENERAL_READ_FAILED_FILE_TOO_SMALL.getMsg(f.getAbsolutePath()));
+        }
+    }
+
     /*
       * Reads the given file, and return an AudioFile object containing the Tag
       * and the encoding infos present in the file. If the file has no tag, an
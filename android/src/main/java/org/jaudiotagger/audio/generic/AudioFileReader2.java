@@ -1,6 +1,7 @@
 package org.jaudiotagger.audio.generic;
 
 import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioHeader;
 import org.jaudiotagger.audio.exceptions.CannotReadException;
 import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
 import org.jaudiotagger.audio.exceptions.NoReadPermissionsException;
@@ -62,6 +63,84 @@ public abstract class AudioFileReader2 extends AudioFileReader
         return new AudioFile(f, info, tag);
     }
 
+    /**
+     * @return true if the reader can read from a {@link ChannelSource}
+     */
+    public boolean isChannelSourceSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Reads the file content from the channel source, the file is only used for its name
+     *
+     * @param f The file, it does not need to exist
+     * @param source The source of the file content
+     * @exception CannotReadException If anything went bad during the read of this file
+     */
+    public AudioFile read(File f, ChannelSource source) throws CannotReadException, IOException
+    {
+        GenericAudioHeader info = getEncodingInfo(source, f.toPath());
+        Tag tag = getTag(source, f.toPath());
+        return new AudioFile(f, info, tag);
+    }
+
+    /**
+     * Reads only the encoding infos from the channel source
+     *
+     * @param f The file, it does not need to exist
+     * @param source The source of the file content
+     * @exception CannotReadException If anything went bad during the read of this file
+     */
+    public AudioHeader readAudioHeader(File f, ChannelSource source) throws CannotReadException, IOException
+    {
+        return getEncodingInfo(source, f.toPath());
+    }
+
+    /**
+     * Read Encoding Information from a channel source, only the readers whose {@link #isChannelSourceSupported()}
+     * returns true override it
+     *
+     * @param source
+     * @param path the file path, only used for the logging
+     * @return
+     * @throws CannotReadException
+     * @throws IOException
+     */
+    protected GenericAudioHeader getEncodingInfo(ChannelSource source, Path path) throws CannotReadException, IOException
+    {
+        throw new CannotReadException(ErrorMessage.NO_READER_FOR_THIS_FORMAT.getMsg(Utils.getExtension(path.toFile())));
+    }
+
+    /**
+     * Read tag Information from a channel source, only the readers whose {@link #isChannelSourceSupported()}
+     * returns true override it
+     *
+     * @param source
+     * @param path the file path, only used for the logging
+     * @return
+     * @throws CannotReadException
+     * @throws IOException
+     */
+    protected Tag getTag(ChannelSource source, Path path) throws CannotReadException, IOException
+    {
+        throw new CannotReadException(ErrorMessage.NO_READER_FOR_THIS_FORMAT.getMsg(Utils.getExtension(path.toFile())));
+    }
+
+    /**
+     * Reads only the encoding infos, {@link #getTag(Path)} is never called
+     *
+     * @param f The file to read
+     * @return the audio header of the file
+     * @throws CannotReadException If anything went bad during the read of this file
+     */
+    @Override
+    public AudioHeader readAudioHeader(File f) throws CannotReadException, IOException, TagException, ReadOnlyFileException, InvalidAudioFrameException
+    {
+        checkReadable(f);
+        return getEncodingInfo(f.toPath());
+    }
+
     /**
      *
      * Read Encoding Information
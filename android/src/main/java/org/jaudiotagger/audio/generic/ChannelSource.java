@@ -0,0 +1,21 @@
+package org.jaudiotagger.audio.generic;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Source of the file content for the files that can not be opened by a path, such as an Android content uri.
+ *
+ * <p>The readers supporting it ({@link AudioFileReader2#isChannelSourceSupported()}) seek in the channel
+ * instead of requiring a copy of the file.
+ */
+public interface ChannelSource
+{
+    /**
+     * Open a new channel positioned at the start of the file, the caller closes it
+     *
+     * @return the channel
+     * @throws IOException if the source can not be opened
+     */
+    FileChannel open() throws IOException;
+}
@@ -559,4 +559,17 @@ public class Utils
         }
         return false;
     }
+
+    /**
+     * Called between the chunks of the long scans, so a read canceled by interrupting its thread stops promptly
+     *
+     * @throws InterruptedIOException if the thread running the read was interrupted
+     */
+    public static void checkInterrupted() throws InterruptedIOException
+    {
+        if (Thread.currentThread().isInterrupted())
+        {
+            throw new InterruptedIOException("Read interrupted");
+        }
+    }
 }
@@ -191,6 +191,7 @@ public class MP3AudioHeader implements AudioHeader
                 //by increasing FILE_BUFFER_SIZE
                 if (bb.remaining() <= MIN_BUFFER_REMAINING_REQUIRED)
                 {
+                    Utils.checkInterrupted();
                     bb.clear();
                     fc.position(filePointerCount);
                     fc.read(bb, fc.position());
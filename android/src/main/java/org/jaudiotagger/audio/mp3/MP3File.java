@@ -895,6 +895,11 @@ public class MP3File extends AudioFile
 
         logger.config("Saving  : " + file.getPath());
 
+        if (!readOptions.isFullRead())
+        {
+            throw new IOException("Unable to write " + file + ", the tag was read with a field mask");
+        }
+
         //Checks before starting write
         precheck(file);
 
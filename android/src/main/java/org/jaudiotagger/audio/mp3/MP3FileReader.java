@@ -1,6 +1,7 @@
 package org.jaudiotagger.audio.mp3;
 
 import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioHeader;
 import org.jaudiotagger.audio.exceptions.CannotReadException;
 import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
 import org.jaudiotagger.audio.exceptions.ReadOnlyFileException;
@@ -40,6 +41,19 @@ public class MP3FileReader extends AudioFileReader
         return mp3File;
     }
 
+    /**
+     * Only locates the audio start and parses the first frame, no ID3 tag is read
+     *
+     * @param f
+     * @return the MP3 audio header
+     */
+    @Override
+    public AudioHeader readAudioHeader(File f) throws IOException, TagException, ReadOnlyFileException, CannotReadException, InvalidAudioFrameException
+    {
+        MP3File mp3File = new MP3File(f, 0, true);
+        return mp3File.getAudioHeader();
+    }
+
     /**
      * Read
      *
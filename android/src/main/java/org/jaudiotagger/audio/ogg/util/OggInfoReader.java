@@ -39,6 +39,9 @@ public class OggInfoReader
     // Logger Object
     public static Logger logger = Logger.getLogger("org.jaudiotagger.audio.ogg.atom");
 
+    //The tail scan reads a byte at a time, check for cancellation every 4KB scanned
+    private static final long SCAN_CHECK_INTERVAL_MASK = 0xFFF;
+
     public GenericAudioHeader read(RandomAccessFile raf) throws CannotReadException, IOException
     {
         long start = raf.getFilePointer();
@@ -72,8 +75,13 @@ public class OggInfoReader
         raf.seek(start);
         double pcmSamplesNumber = -1;
         raf.seek(raf.length() - 2);
+        long scannedBytes = 0;
         while (raf.getFilePointer() >= 4)
         {
+            if ((++scannedBytes & SCAN_CHECK_INTERVAL_MASK) == 0)
+            {
+                Utils.checkInterrupted();
+            }
             if (raf.read() == OggPageHeader.CAPTURE_PATTERN[3])
             {
                 raf.seek(raf.getFilePointer() - OggPageHeader.FIELD_CAPTURE_PATTERN_LENGTH);
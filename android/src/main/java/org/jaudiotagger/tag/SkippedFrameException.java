@@ -0,0 +1,74 @@
+/*
+ *  @author : Paul Taylor
+ *  @author : Eric Farng
+ *
+ *  Version @version:$Id$
+ *
+ *  MusicTag Copyright (C)2003,2004
+ *
+ *  This library is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser
+ *  General Public  License as published by the Free Software Foundation; either version 2.1 of the License,
+ *  or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ *  the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License along with this library; if not,
+ *  you can get a copy from http://www.opensource.org/licenses/lgpl-license.php or write to the Free Software
+ *  Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+ *
+ */
+package org.jaudiotagger.tag;
+
+/**
+ * Thrown when a Frame is skipped because its field was not requested by the {@link org.jaudiotagger.audio.ReadOptions},
+ * the buffer is already positioned after the frame.
+ *
+ * @version $Revision$
+ */
+public class SkippedFrameException extends InvalidFrameException
+{
+    /**
+	 * 
+	 */
+	private static final long serialVersionUID = -1947402953618421653L;
+
+	/**
+     * Creates a new SkippedFrameException datatype.
+     */
+    public SkippedFrameException()
+    {
+    }
+
+    /**
+     * Creates a new SkippedFrameException datatype.
+     *
+     * @param ex the cause.
+     */
+    public SkippedFrameException(Throwable ex)
+    {
+        super(ex);
+    }
+
+    /**
+     * Creates a new SkippedFrameException datatype.
+     *
+     * @param msg the detail message.
+     */
+    public SkippedFrameException(String msg)
+    {
+        super(msg);
+    }
+
+    /**
+     * Creates a new SkippedFrameException datatype.
+     *
+     * @param msg the detail message.
+     * @param ex  the cause.
+     */
+    public SkippedFrameException(String msg, Throwable ex)
+    {
+        super(msg, ex);
+    }
+}
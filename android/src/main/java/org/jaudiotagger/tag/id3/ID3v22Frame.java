@@ -15,11 +15,13 @@
  */
 package org.jaudiotagger.tag.id3;
 
+import org.jaudiotagger.audio.ReadOptions;
 import org.jaudiotagger.audio.mp3.MP3File;
 import org.jaudiotagger.tag.EmptyFrameException;
 import org.jaudiotagger.tag.InvalidDataTypeException;
 import org.jaudiotagger.tag.InvalidFrameException;
 import org.jaudiotagger.tag.InvalidFrameIdentifierException;
+import org.jaudiotagger.tag.SkippedFrameException;
 import org.jaudiotagger.tag.id3.framebody.AbstractID3v2FrameBody;
 import org.jaudiotagger.tag.id3.framebody.FrameBodyDeprecated;
 import org.jaudiotagger.tag.id3.framebody.FrameBodyUnsupported;
@@ -358,6 +360,11 @@ public class ID3v22Frame extends AbstractID3v2Frame
             logger.warning("Invalid Frame size larger than size before mp3 audio:" + identifier);
             throw new InvalidFrameException(identifier + " is invalid frame");
         }
+        else if (ReadOptions.getCurrent().isSkipId3Frame(identifier))
+        {
+            byteBuffer.position(byteBuffer.position() + frameSize);
+            throw new SkippedFrameException(identifier + " is skipped");
+        }
         else
         {
             logger.fine("Frame Size Is:" + frameSize);
@@ -421,6 +421,11 @@ public class ID3v22Tag extends AbstractID3v2Tag
                 String id = next.getIdentifier();
                 loadFrameIntoMap(id, next);
             }
+            //Frame not requested by the read options, already skipped
+            catch (SkippedFrameException ex)
+            {
+                continue;
+            }
             //Found Padding, no more frames
             catch (PaddingException ex)
             {
@@ -16,12 +16,14 @@
 package org.jaudiotagger.tag.id3;
 
 import org.jaudiotagger.FileConstants;
+import org.jaudiotagger.audio.ReadOptions;
 import org.jaudiotagger.audio.mp3.MP3File;
 import org.jaudiotagger.logging.Hex;
 import org.jaudiotagger.tag.EmptyFrameException;
 import org.jaudiotagger.tag.InvalidDataTypeException;
 import org.jaudiotagger.tag.InvalidFrameException;
 import org.jaudiotagger.tag.InvalidFrameIdentifierException;
+import org.jaudiotagger.tag.SkippedFrameException;
 import org.jaudiotagger.tag.id3.framebody.AbstractID3v2FrameBody;
 import org.jaudiotagger.tag.id3.framebody.FrameBodyDeprecated;
 import org.jaudiotagger.tag.id3.framebody.FrameBodyUnsupported;
@@ -464,6 +466,12 @@ public class ID3v23Frame extends AbstractID3v2Frame
             throw new InvalidFrameException(identifier + " is invalid frame, realframeSize is:" + realFrameSize);
         }
 
+        if (ReadOptions.getCurrent().isSkipId3Frame(identifier))
+        {
+            byteBuffer.position(byteBuffer.position() + realFrameSize);
+            throw new SkippedFrameException(identifier + " is skipped");
+        }
+
         ByteBuffer frameBodyBuffer;
         //Read the body data
         try
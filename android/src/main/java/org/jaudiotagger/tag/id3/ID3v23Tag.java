@@ -634,6 +634,11 @@ public class ID3v23Tag extends AbstractID3v2Tag
                 logger.config(getLoggingFilename() + ":Found "+ id+ " at frame at:" + posBeforeRead);
                 loadFrameIntoMap(id, next);
             }
+            //Frame not requested by the read options, already skipped
+            catch (SkippedFrameException ex)
+            {
+                continue;
+            }
             //Found Padding, no more frames
             catch (PaddingException ex)
             {
@@ -16,6 +16,7 @@
 package org.jaudiotagger.tag.id3;
 
 import org.jaudiotagger.FileConstants;
+import org.jaudiotagger.audio.ReadOptions;
 import org.jaudiotagger.audio.mp3.MP3File;
 import org.jaudiotagger.logging.ErrorMessage;
 import org.jaudiotagger.logging.Hex;
@@ -631,6 +632,12 @@ public class ID3v24Frame extends AbstractID3v2Frame
         //Work out the real size of the frameBody data
         int realFrameSize = frameSize - extraHeaderBytesCount;
 
+        if (ReadOptions.getCurrent().isSkipId3Frame(identifier))
+        {
+            byteBuffer.position(byteBuffer.position() + realFrameSize);
+            throw new SkippedFrameException(identifier + " is skipped");
+        }
+
         //Create Buffer that only contains the body of this frame rather than the remainder of tag
         ByteBuffer frameBodyBuffer = byteBuffer.slice();
         frameBodyBuffer.limit(realFrameSize);
@@ -912,6 +912,11 @@ public class ID3v24Tag extends AbstractID3v2Tag
                 id = next.getIdentifier();
                 loadFrameIntoMap(id, next);
             }
+            //Frame not requested by the read options, already skipped
+            catch (SkippedFrameException ex)
+            {
+                continue;
+            }
             //Found Padding, no more frames
             catch (PaddingException ex)
             {
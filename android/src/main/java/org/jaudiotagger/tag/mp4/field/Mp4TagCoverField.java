@@ -20,6 +20,7 @@ package org.jaudiotagger.tag.mp4.field;
 
 import org.jaudiotagger.audio.mp4.atom.Mp4BoxHeader;
 import org.jaudiotagger.logging.ErrorMessage;
+import org.jaudiotagger.tag.TagField;
 import org.jaudiotagger.tag.id3.valuepair.ImageFormats;
 import org.jaudiotagger.tag.mp4.Mp4FieldKey;
 import org.jaudiotagger.tag.mp4.atom.Mp4DataBox;
@@ -45,6 +46,9 @@ public class Mp4TagCoverField extends Mp4TagBinaryField
     //may have data and name atom
     private int dataAndHeaderSize;
 
+    //Encoded once, the same cover can be written to many files
+    private volatile byte[] rawContentDataOnly;
+
     /**
      * Empty CoverArt Field
      */
@@ -171,6 +175,48 @@ public class Mp4TagCoverField extends Mp4TagBinaryField
         //After returning buffers position will be after the end of this atom
     }
 
+    /**
+     * The data atom of the cover is built on the first call and reused afterwards
+     *
+     * @return
+     * @throws UnsupportedEncodingException
+     */
+    @Override
+    public byte[] getRawContentDataOnly() throws UnsupportedEncodingException
+    {
+        byte[] rawContentDataOnly = this.rawContentDataOnly;
+        if (rawContentDataOnly == null)
+        {
+            rawContentDataOnly = super.getRawContentDataOnly();
+            this.rawContentDataOnly = rawContentDataOnly;
+        }
+        return rawContentDataOnly;
+    }
+
+    /**
+     * Drop the built data atom, it is built again from the new data
+     *
+     * @param d
+     */
+    @Override
+    public void setData(byte[] d)
+    {
+        super.setData(d);
+        this.rawContentDataOnly = null;
+    }
+
+    /**
+     * Drop the built data atom, it is built again from the copied data
+     *
+     * @param field
+     */
+    @Override
+    public void copyContent(TagField field)
+    {
+        super.copyContent(field);
+        this.rawContentDataOnly = null;
+    }
+
     /**
      *
      * @param imageType
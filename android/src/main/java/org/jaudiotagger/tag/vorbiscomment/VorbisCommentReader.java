@@ -19,12 +19,14 @@
  */
 package org.jaudiotagger.tag.vorbiscomment;
 
+import org.jaudiotagger.audio.ReadOptions;
 import org.jaudiotagger.audio.exceptions.CannotReadException;
 import org.jaudiotagger.audio.generic.Utils;
 import org.jaudiotagger.audio.ogg.util.VorbisHeader;
 import org.jaudiotagger.logging.ErrorMessage;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.logging.Logger;
 
@@ -72,6 +74,32 @@ public class VorbisCommentReader
 
     }
 
+    /**
+     * Check the field name of the comment against the read options without decoding the comment
+     *
+     * @param rawdata
+     * @param pos start of the comment
+     * @param commentLength
+     * @param readOptions
+     * @return true if the comment is not requested
+     */
+    private boolean isSkipComment(byte[] rawdata, int pos, int commentLength, ReadOptions readOptions)
+    {
+        if (readOptions.isFullRead())
+        {
+            return false;
+        }
+        int end = pos + commentLength;
+        for (int i = pos; i < end; i++)
+        {
+            if (rawdata[i] == '=')
+            {
+                return readOptions.isSkipVorbisField(new String(rawdata, pos, i - pos, StandardCharsets.ISO_8859_1));
+            }
+        }
+        return false;
+    }
+
     /**
      * @param rawdata
      * @param isFramingBit
@@ -84,6 +112,7 @@ public class VorbisCommentReader
     {
 
         VorbisCommentTag tag = new VorbisCommentTag();
+        ReadOptions readOptions = ReadOptions.getCurrent();
 
         byte[] b = new byte[FIELD_VENDOR_LENGTH_LENGTH];
         System.arraycopy(rawdata, FIELD_VENDOR_LENGTH_POS, b, FIELD_VENDOR_LENGTH_POS, FIELD_VENDOR_LENGTH_LENGTH);
@@ -136,6 +165,10 @@ public class VorbisCommentReader
                 }
                 break;
             }
+            else if (isSkipComment(rawdata, pos, commentLength, readOptions))
+            {
+                pos += commentLength;
+            }
             else
             {
                 b = new byte[commentLength];
@@ -1,4 +1,4 @@
-import { NativeModules } from 'react-native';
+import { NativeEventEmitter, NativeModules } from 'react-native';
 
 const LINKING_ERROR =
   `The package 'react-native-local-media-metadata' doesn't seem to be linked. Make sure: \n\n` +
@@ -34,29 +34,252 @@ export interface MusicMetadataFull {
   name: string
 }
 
-const writeQueue = new Map<string, { promise: Promise<void>, num: number }>()
-const waitQueuePromise = async(key: string, run: () => Promise<void>): Promise<void> => {
-  let task = writeQueue.get(key)
-  if (!task) task = { promise: Promise.resolve(), num: 0 }
-  task.num++
-  task.promise = task.promise.finally(run).finally(() => {
-    let task = writeQueue.get(key)
-    if (!task) return
-    task.num--
-    if (task.num > 0) writeQueue.set(key, task)
-    else writeQueue.delete(key)
-  })
-  writeQueue.set(key, task)
-  return task.promise
+const eventEmitter = new NativeEventEmitter(NativeModules.LocalMediaMetadata)
+
+let requestIdSeed = 0
+const createRequestId = () => `${Date.now()}_${++requestIdSeed}`
+
+/**
+ * The queued native tasks run by priority: `interactive` for the rows on screen, `prefetch` for the rows about to be shown,
+ * `background` for scans and bulk work
+ */
+export type ReadPriority = 'interactive' | 'prefetch' | 'background'
+export interface ReadRequestOptions {
+  /**
+   * Used to cancel the read by `cancelRead` or raise its priority by `setReadPriority`
+   */
+  requestId?: string
+  /**
+   * Reject the read if it is not done in time, ms
+   */
+  timeout?: number
+  /**
+   * Default `interactive`
+   */
+  priority?: ReadPriority
+}
+/**
+ * Cancel a read started with a `requestId`, the read is rejected and its worker stops at the next chunk
+ * @param requestId
+ * @returns whether the read was still queued or running
+ */
+export const cancelRead = async(requestId: string): Promise<boolean> => {
+  return LocalMediaMetadata.cancelRead(requestId)
+}
+/**
+ * Raise the priority of a queued read started with a `requestId`, e.g. when its row becomes visible
+ * @param requestId
+ * @param priority
+ * @returns false if the read is already running or done, or already has a higher priority
+ */
+export const setReadPriority = async(requestId: string, priority: ReadPriority): Promise<boolean> => {
+  return LocalMediaMetadata.setReadPriority(requestId, priority)
 }
 
 /**
  * Read Metadata
  * @param filePath
+ * @param options
+ * @returns
+ */
+export const readMetadata = async(filePath: string, options: ReadRequestOptions = {}): Promise<MusicMetadataFull | null> => {
+  return LocalMediaMetadata.readMetadata(filePath, options)
+}
+/**
+ * Get the metadata of a file already read before, synchronously, the file is not opened.
+ * It is a blocking method of the bridge module, not a JSI function
+ * @param filePath
+ * @returns null if the file was not read before or has changed since then
+ */
+export const getCachedMetadata = (filePath: string): MusicMetadataFull | null => {
+  return LocalMediaMetadata.getCachedMetadata(filePath)
+}
+export interface AudioInfo {
+  type: string
+  bitrate: string
+  interval: number
+  size: number
+  ext: 'mp3' | 'flac' | 'ogg' | 'wav'
+}
+/**
+ * Read Audio Info, only the audio header is parsed, much cheaper than readMetadata
+ * @param filePath
+ * @param options
+ * @returns
+ */
+export const readAudioInfo = async(filePath: string, options: ReadRequestOptions = {}): Promise<AudioInfo | null> => {
+  return LocalMediaMetadata.readAudioInfo(filePath, options)
+}
+export interface MetadataBatchItem {
+  path: string
+  metadata: MusicMetadataFull | null
+  error?: string
+}
+export interface ReadMetadataBatchOptions {
+  /**
+   * Used to cancel the batch, generated if not set
+   */
+  requestId?: string
+  /**
+   * Max items per chunk event, default 50
+   */
+  chunkSize?: number
+  /**
+   * Default `prefetch`, the batch yields to the reads of a higher priority between its files
+   */
+  priority?: ReadPriority
+  /**
+   * Take the metadata of the `content://media/...` uris from MediaStore instead of parsing the files, default false.
+   * `type` is then the MIME type, and before Android 11 `bitrate` is derived from the size and duration
+   */
+  isPreferMediaStore?: boolean
+  onChunk?: (items: MetadataBatchItem[]) => void
+}
+export interface ReadMetadataBatchResult {
+  requestId: string
+  total: number
+  success: number
+  failed: number
+  canceled: boolean
+}
+/**
+ * Read Metadata of multiple files, the results are streamed back in chunks
+ * @param filePaths
+ * @param options
+ * @returns
+ */
+export const readMetadataBatch = async(filePaths: string[], options: ReadMetadataBatchOptions = {}): Promise<ReadMetadataBatchResult> => {
+  const requestId = options.requestId ?? createRequestId()
+  const subscription = eventEmitter.addListener('LocalMediaMetadata_readMetadataBatch', (event: { requestId: string, items: MetadataBatchItem[], done: boolean }) => {
+    if (event.requestId !== requestId || !event.items.length) return
+    options.onChunk?.(event.items)
+  })
+  return (LocalMediaMetadata.readMetadataBatch(filePaths, { requestId, chunkSize: options.chunkSize ?? 50, priority: options.priority ?? 'prefetch', isPreferMediaStore: options.isPreferMediaStore ?? false }) as Promise<ReadMetadataBatchResult>).finally(() => {
+    subscription.remove()
+  })
+}
+/**
+ * Cancel Read Metadata Batch
+ * @param requestId
+ * @returns whether the batch was still running
+ */
+export const cancelReadMetadataBatch = async(requestId: string): Promise<boolean> => {
+  return LocalMediaMetadata.cancelReadMetadataBatch(requestId)
+}
+export interface ScanFileItem {
+  path: string
+  name: string
+  size: number
+  lastModified: number
+  /**
+   * The MIME type reported by the document provider, null for a plain file path
+   */
+  mimeType: string | null
+  /**
+   * Only available when `isReadMetadata` is enabled
+   */
+  metadata?: MusicMetadataFull | null
+  /**
+   * Only available when `isIncremental` is enabled
+   */
+  status?: 'added' | 'modified'
+}
+export interface ScanRemovedFileItem {
+  path: string
+  status: 'removed'
+}
+export interface ScanFilesOptions {
+  /**
+   * Used to cancel the scan, generated if not set
+   */
+  requestId?: string
+  /**
+   * Ext names of the audio files, default `['mp3', 'flac']`
+   */
+  extNames?: string[]
+  /**
+   * Also accept files with other ext names when the file header is a known audio format,
+   * an MP4 file only when its brand is an audio one (M4A, M4B, ...), so videos are not taken
+   */
+  isCheckMagic?: boolean
+  /**
+   * Read the metadata of the found files
+   */
+  isReadMetadata?: boolean
+  /**
+   * Scan the subdirectories, default true
+   */
+  isRecursive?: boolean
+  /**
+   * Only send the files added, modified or removed since the last incremental scan of the directory with the same options
+   */
+  isIncremental?: boolean
+  /**
+   * Max items per chunk event, default 100
+   */
+  chunkSize?: number
+  onChunk?: (items: Array<ScanFileItem | ScanRemovedFileItem>) => void
+}
+export interface ScanFilesResult {
+  requestId: string
+  files: number
+  dirs: number
+  /**
+   * The change counts are only available when `isIncremental` is enabled
+   */
+  added?: number
+  modified?: number
+  removed?: number
+  unchanged?: number
+  canceled: boolean
+}
+/**
+ * Scan the audio files of a directory or a `content://` tree uri, the found files are streamed back in chunks
+ * @param dirPath
+ * @param options
+ * @returns
+ */
+export const scanFiles = async(dirPath: string, options: ScanFilesOptions = {}): Promise<ScanFilesResult> => {
+  const { onChunk, ...scanOptions } = options
+  const requestId = options.requestId ?? createRequestId()
+  const subscription = eventEmitter.addListener('LocalMediaMetadata_scanFiles', (event: { requestId: string, items: Array<ScanFileItem | ScanRemovedFileItem>, done: boolean }) => {
+    if (event.requestId !== requestId || !event.items.length) return
+    onChunk?.(event.items)
+  })
+  return (LocalMediaMetadata.scanFiles(dirPath, { ...scanOptions, requestId }) as Promise<ScanFilesResult>).finally(() => {
+    subscription.remove()
+  })
+}
+/**
+ * Cancel Scan Files
+ * @param requestId
+ * @returns whether the scan was still running
+ */
+export const cancelScanFiles = async(requestId: string): Promise<boolean> => {
+  return LocalMediaMetadata.cancelScanFiles(requestId)
+}
+
+/**
+ * Clear the state of the incremental scans, the next incremental scans will report every file as added
  * @returns
  */
-export const readMetadata = async(filePath: string): Promise<MusicMetadataFull | null> => {
-  return LocalMediaMetadata.readMetadata(filePath)
+export const clearScanJournal = async(): Promise<void> => {
+  return LocalMediaMetadata.clearScanJournal()
+}
+
+/**
+ * Clear the persistent metadata index and the parsed files kept in memory, the next reads will parse the files again
+ * @returns
+ */
+export const clearMetadataIndex = async(): Promise<void> => {
+  return LocalMediaMetadata.clearMetadataIndex()
+}
+
+export interface WriteResult {
+  /**
+   * false if the file already had the requested values and was not rewritten
+   */
+  changed: boolean
 }
 /**
  * Write Metadata
@@ -65,20 +288,138 @@ export const readMetadata = async(filePath: string): Promise<MusicMetadataFull |
  * @param isOverwrite
  * @returns
  */
-export const writeMetadata = async(filePath: string, metadata: MusicMetadata, isOverwrite = false): Promise<void> => {
-  return waitQueuePromise(filePath, () => {
-    return LocalMediaMetadata.writeMetadata(filePath, metadata, isOverwrite)
+export const writeMetadata = async(filePath: string, metadata: MusicMetadata, isOverwrite = false): Promise<WriteResult> => {
+  return LocalMediaMetadata.writeMetadata(filePath, metadata, isOverwrite)
+}
+
+export interface WriteTagsOptions {
+  metadata?: MusicMetadata
+  /**
+   * Empty string to remove the lyric
+   */
+  lyric?: string
+  /**
+   * Empty string to remove the picture
+   */
+  picPath?: string
+  /**
+   * Start from an empty tag
+   */
+  isOverwrite?: boolean
+}
+/**
+ * Write Tags, the metadata, lyric and picture are written by a single commit
+ * @param filePath
+ * @param options the fields not set are kept unchanged
+ * @returns
+ */
+export const writeTags = async(filePath: string, options: WriteTagsOptions): Promise<WriteResult> => {
+  return LocalMediaMetadata.writeTags(filePath, options)
+}
+
+export interface WriteTagsBatchItem extends WriteTagsOptions {
+  filePath: string
+}
+export interface WriteTagsBatchItemResult {
+  path: string
+  /**
+   * `unchanged` if the file already had the requested values, `canceled` if it was skipped by the cancel
+   */
+  status: 'changed' | 'unchanged' | 'failed' | 'canceled'
+  error?: string
+}
+export interface WriteTagsBatchOptions {
+  /**
+   * Used to cancel the job, generated if not set
+   */
+  requestId?: string
+  /**
+   * Parallel writes per internal storage volume, default 2, the writes of all the jobs share the 2 threads of the write lane
+   */
+  concurrency?: number
+  /**
+   * Parallel writes per removable storage volume (SD card / USB), default 1
+   */
+  removableConcurrency?: number
+  /**
+   * Max results per progress event, default 20
+   */
+  chunkSize?: number
+  onProgress?: (results: WriteTagsBatchItemResult[]) => void
+}
+export interface WriteTagsBatchResult {
+  requestId: string
+  total: number
+  changed: number
+  unchanged: number
+  failed: number
+  canceled: number
+  /**
+   * In the order of the items
+   */
+  results: WriteTagsBatchItemResult[]
+}
+/**
+ * Write the tags of many files in parallel, the files of each storage volume are limited by its own concurrency
+ * @param items
+ * @param options
+ * @returns
+ */
+export const writeTagsBatch = async(items: WriteTagsBatchItem[], options: WriteTagsBatchOptions = {}): Promise<WriteTagsBatchResult> => {
+  const { onProgress, ...batchOptions } = options
+  const requestId = options.requestId ?? createRequestId()
+  const subscription = eventEmitter.addListener('LocalMediaMetadata_writeTagsBatch', (event: { requestId: string, items: WriteTagsBatchItemResult[], done: boolean }) => {
+    if (event.requestId !== requestId || !event.items.length) return
+    onProgress?.(event.items)
+  })
+  return (LocalMediaMetadata.writeTagsBatch(items, { ...batchOptions, requestId }) as Promise<WriteTagsBatchResult>).finally(() => {
+    subscription.remove()
   })
 }
+/**
+ * Cancel Write Tags Batch, the files not started yet are reported as `canceled`
+ * @param requestId
+ * @returns whether the job was still running
+ */
+export const cancelWriteTagsBatch = async(requestId: string): Promise<boolean> => {
+  return LocalMediaMetadata.cancelWriteTagsBatch(requestId)
+}
 
 /**
  * Read Pic
  * @param filePath
  * @param picDir
+ * @param options the mp3 and flac `content://` files read by media3 can not be canceled
  * @returns filePath
  */
-export const readPic = async(filePath: string, picDir: string): Promise<string> => {
-  return LocalMediaMetadata.readPic(filePath, picDir)
+export const readPic = async(filePath: string, picDir: string, options: ReadRequestOptions = {}): Promise<string> => {
+  return LocalMediaMetadata.readPic(filePath, picDir, options)
+}
+/**
+ * Read Pic Thumbnail, the downsampled artwork is cached, later calls return the cached file without opening the audio file
+ * @param filePath
+ * @param maxSize max width and height of the thumbnail in px, must be greater than 0
+ * @param options the mp3 and flac `content://` files read by media3 can not be canceled
+ * @returns thumbnail path, empty string if the file has no artwork
+ */
+export const readPicThumbnail = async(filePath: string, maxSize: number, options: ReadRequestOptions = {}): Promise<string> => {
+  return LocalMediaMetadata.readPicThumbnail(filePath, Math.round(maxSize), options)
+}
+/**
+ * Get the thumbnail cached by `readPicThumbnail`, synchronously.
+ * It is a blocking method of the bridge module, not a JSI function, the thumbnail is returned as a file path
+ * @param filePath
+ * @param maxSize
+ * @returns thumbnail path, empty string if the file has no artwork, null if not cached
+ */
+export const getCachedPicThumbnail = (filePath: string, maxSize: number): string | null => {
+  return LocalMediaMetadata.getCachedPicThumbnail(filePath, Math.round(maxSize))
+}
+/**
+ * Clear the cached thumbnails
+ */
+export const clearThumbnailCache = async(): Promise<void> => {
+  return LocalMediaMetadata.clearThumbnailCache()
 }
 /**
  * Write Pic
@@ -86,20 +427,19 @@ export const readPic = async(filePath: string, picDir: string): Promise<string>
  * @param picPath
  * @returns
  */
-export const writePic = async(filePath: string, picPath: string): Promise<void> => {
-  return waitQueuePromise(filePath, () => {
-    return LocalMediaMetadata.writePic(filePath, picPath)
-  })
+export const writePic = async(filePath: string, picPath: string): Promise<WriteResult> => {
+  return LocalMediaMetadata.writePic(filePath, picPath)
 }
 
 /**
  * Read Lyric
  * @param filePath
  * @param isReadLrcFile
+ * @param options
  * @returns
  */
-export const readLyric = async(filePath: string, isReadLrcFile: boolean = true): Promise<string> => {
-  return LocalMediaMetadata.readLyric(filePath, isReadLrcFile)
+export const readLyric = async(filePath: string, isReadLrcFile: boolean = true, options: ReadRequestOptions = {}): Promise<string> => {
+  return LocalMediaMetadata.readLyric(filePath, isReadLrcFile, options)
 }
 /**
  * Write Lyric
@@ -107,9 +447,23 @@ export const readLyric = async(filePath: string, isReadLrcFile: boolean = true):
  * @param lyric
  * @returns
  */
-export const writeLyric = async(filePath: string, lyric: string): Promise<void> => {
-  return waitQueuePromise(filePath, () => {
-    return LocalMediaMetadata.writeLyric(filePath, lyric)
-  })
+export const writeLyric = async(filePath: string, lyric: string): Promise<WriteResult> => {
+  return LocalMediaMetadata.writeLyric(filePath, lyric)
 }
 
+
+export interface TaskLaneStats {
+  queued: number
+  active: number
+  threads: number
+  maxThreads: number
+}
+export type TaskQueueStats = Record<'read' | 'read-removable' | 'write', TaskLaneStats>
+
+/**
+ * Get the native worker queue stats
+ * @returns
+ */
+export const getTaskQueueStats = async(): Promise<TaskQueueStats> => {
+  return LocalMediaMetadata.getTaskQueueStats()
+}